@@ -2,21 +2,45 @@ package com.example.demo.config;
 
 
 
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ClassUtils;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.crt.AwsCrtHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.s3.S3Client;
 
+/**
+ * AWS SDK clients. Blocking clients (DynamoDB, S3) each get their own connection pool
+ * from {@link #syncHttpClient()}, configured under app.aws.http.*: client "apache"
+ * (default) or "crt" (AWS Common Runtime, an optional dependency that must be on the
+ * classpath), pool size, timeouts, idle time and TTL, and TCP keep-alive. All clients
+ * publish SDK metrics to Micrometer through {@link MicrometerMetricPublisher}.
+ *
+ * The HTTP clients are beans of their own: an SDK client never closes an HTTP client it
+ * was given, so the context closes them on shutdown instead.
+ */
 @Configuration
 public class DynamoDbConfig {
 
+    private static final String CRT_HTTP_CLIENT = "software.amazon.awssdk.http.crt.AwsCrtHttpClient";
+
     @Value("${aws.accessKeyId}")
     private String accessKeyId;
 
@@ -26,13 +50,48 @@ public class DynamoDbConfig {
     @Value("${aws.region}")
     private String awsRegion;
 
+    @Value("${app.aws.http.client:apache}")
+    private String httpClientType;
+
+    // SDK default is 50; beyond this, calls wait for a free connection up to acquire-timeout-ms
+    @Value("${app.aws.http.max-connections:100}")
+    private int maxConnections;
+
+    @Value("${app.aws.http.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    @Value("${app.aws.http.socket-timeout-ms:5000}")
+    private long socketTimeoutMs;
+
+    @Value("${app.aws.http.acquire-timeout-ms:3000}")
+    private long acquireTimeoutMs;
+
+    @Value("${app.aws.http.max-idle-time-s:60}")
+    private long maxIdleSeconds;
+
+    @Value("${app.aws.http.connection-ttl-s:300}")
+    private long connectionTtlSeconds;
+
     @Bean
-    DynamoDbClient dynamoDbClient() {
+    MicrometerMetricPublisher awsMetricPublisher(MeterRegistry meterRegistry) {
+        return new MicrometerMetricPublisher(meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    SdkHttpClient dynamoDbHttpClient() {
+        return syncHttpClient();
+    }
+
+    @Bean
+    DynamoDbClient dynamoDbClient(@Qualifier("dynamoDbHttpClient") SdkHttpClient dynamoDbHttpClient,
+                                  MicrometerMetricPublisher awsMetricPublisher) {
         AwsBasicCredentials credentials = AwsBasicCredentials.create(accessKeyId, secretAccessKey);
 
         return DynamoDbClient.builder()
                 .region(Region.of(awsRegion))
                 .credentialsProvider(StaticCredentialsProvider.create(credentials))
+                .httpClient(dynamoDbHttpClient)
+                .overrideConfiguration(o -> o.addMetricPublisher(awsMetricPublisher))
                 .build();
     }
 
@@ -43,11 +102,110 @@ public class DynamoDbConfig {
                 .build();
     }
     
+    // Non-blocking client (Netty), used by the reactive login path and batched reads.
+    // The SDK default allows 50 concurrent requests and has no TCP keep-alive; requests
+    // over max-concurrency wait up to the acquisition timeout for a connection.
+    @Bean(destroyMethod = "close")
+    SdkAsyncHttpClient dynamoDbAsyncHttpClient(
+            @Value("${app.dynamodb.async.max-concurrency:200}") int maxConcurrency,
+            @Value("${app.dynamodb.async.max-pending-acquires:10000}") int maxPendingAcquires,
+            @Value("${app.dynamodb.async.connect-timeout-ms:2000}") long connectTimeoutMs,
+            @Value("${app.dynamodb.async.acquire-timeout-ms:3000}") long acquireTimeoutMs,
+            @Value("${app.dynamodb.async.read-timeout-ms:5000}") long readTimeoutMs,
+            @Value("${app.dynamodb.async.max-idle-time-s:60}") long maxIdleSeconds,
+            @Value("${app.dynamodb.async.connection-ttl-s:300}") long connectionTtlSeconds) {
+        return NettyNioAsyncHttpClient.builder()
+                .maxConcurrency(maxConcurrency)
+                .maxPendingConnectionAcquires(maxPendingAcquires)
+                .connectionTimeout(Duration.ofMillis(connectTimeoutMs))
+                .connectionAcquisitionTimeout(Duration.ofMillis(acquireTimeoutMs))
+                .readTimeout(Duration.ofMillis(readTimeoutMs))
+                .writeTimeout(Duration.ofMillis(readTimeoutMs))
+                .connectionMaxIdleTime(Duration.ofSeconds(maxIdleSeconds))
+                .connectionTimeToLive(Duration.ofSeconds(connectionTtlSeconds)) // Pick up DNS changes
+                .useIdleConnectionReaper(true)
+                .tcpKeepAlive(true)
+                .build();
+    }
+
     @Bean
-     S3Client s3Client() {
+    DynamoDbAsyncClient dynamoDbAsyncClient(
+            SdkAsyncHttpClient dynamoDbAsyncHttpClient,
+            @Value("${app.dynamodb.async.api-call-timeout-ms:10000}") long apiCallTimeoutMs,
+            MicrometerMetricPublisher awsMetricPublisher) {
+        AwsBasicCredentials credentials = AwsBasicCredentials.create(accessKeyId, secretAccessKey);
+
+        return DynamoDbAsyncClient.builder()
+                .region(Region.of(awsRegion))
+                .credentialsProvider(StaticCredentialsProvider.create(credentials))
+                .httpClient(dynamoDbAsyncHttpClient)
+                .overrideConfiguration(o -> o.apiCallTimeout(Duration.ofMillis(apiCallTimeoutMs))
+                        .addMetricPublisher(awsMetricPublisher))
+                .build();
+    }
+
+    @Bean
+    DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient(DynamoDbAsyncClient dynamoDbAsyncClient) {
+        return DynamoDbEnhancedAsyncClient.builder()
+                .dynamoDbClient(dynamoDbAsyncClient)
+                .build();
+    }
+    
+    @Bean(destroyMethod = "close")
+    SdkHttpClient s3HttpClient() {
+        return syncHttpClient();
+    }
+
+    @Bean
+     S3Client s3Client(@Qualifier("s3HttpClient") SdkHttpClient s3HttpClient,
+                       MicrometerMetricPublisher awsMetricPublisher) {
         return S3Client.builder()
                 .region(Region.of(awsRegion)) // Use the same region
                 .credentialsProvider(DefaultCredentialsProvider.create()) // Uses default credential chain
+                .httpClient(s3HttpClient)
+                .overrideConfiguration(o -> o.addMetricPublisher(awsMetricPublisher))
                 .build();
     }
-}
\ No newline at end of file
+
+    // A new pool per call, so each service client's saturation shows up on its own
+    private SdkHttpClient syncHttpClient() {
+        if ("crt".equalsIgnoreCase(httpClientType)) {
+            if (!ClassUtils.isPresent(CRT_HTTP_CLIENT, getClass().getClassLoader())) {
+                throw new IllegalStateException("app.aws.http.client=crt needs software.amazon.awssdk:aws-crt-client on the classpath");
+            }
+            return CrtHttpClients.create(maxConnections, connectTimeoutMs, socketTimeoutMs, maxIdleSeconds);
+        }
+        if (!"apache".equalsIgnoreCase(httpClientType)) {
+            throw new IllegalArgumentException("Unknown app.aws.http.client '" + httpClientType + "', expected apache or crt");
+        }
+        return ApacheHttpClient.builder()
+                .maxConnections(maxConnections)
+                .connectionTimeout(Duration.ofMillis(connectTimeoutMs))
+                .socketTimeout(Duration.ofMillis(socketTimeoutMs))
+                .connectionAcquisitionTimeout(Duration.ofMillis(acquireTimeoutMs))
+                .connectionMaxIdleTime(Duration.ofSeconds(maxIdleSeconds))
+                .connectionTimeToLive(Duration.ofSeconds(connectionTtlSeconds)) // Pick up DNS changes
+                .useIdleConnectionReaper(true)
+                .tcpKeepAlive(true)
+                .build();
+    }
+
+    // Only loaded when app.aws.http.client=crt, so the optional CRT jar may be absent otherwise
+    private static final class CrtHttpClients {
+
+        static SdkHttpClient create(int maxConnections, long connectTimeoutMs, long socketTimeoutMs, long maxIdleSeconds) {
+            // CRT has no per-read socket timeout; a connection that stalls below 1 B/s for that long is closed instead
+            return AwsCrtHttpClient.builder()
+                    .maxConcurrency(maxConnections)
+                    .connectionTimeout(Duration.ofMillis(connectTimeoutMs))
+                    .connectionMaxIdleTime(Duration.ofSeconds(maxIdleSeconds))
+                    .connectionHealthConfiguration(health -> health
+                            .minimumThroughputInBps(1L)
+                            .minimumThroughputTimeout(Duration.ofMillis(socketTimeoutMs)))
+                    .tcpKeepAliveConfiguration(keepAlive -> keepAlive
+                            .keepAliveInterval(Duration.ofSeconds(30))
+                            .keepAliveTimeout(Duration.ofSeconds(5)))
+                    .build();
+        }
+    }
+}
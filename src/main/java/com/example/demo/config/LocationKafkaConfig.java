@@ -0,0 +1,86 @@
+package com.example.demo.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+
+import com.example.demo.dto.LocationMessage;
+import com.example.demo.service.LocationMessageSerializer;
+
+/**
+ * Producer settings for location updates.
+ *
+ * app.kafka.location-format: with "json" (the default) the Boot auto-configured
+ * KafkaTemplate and its configured serializer are used; with "binary" location updates
+ * are written with {@link LocationMessageSerializer}. The consumer reads both formats,
+ * so it can be rolled out first.
+ *
+ * app.kafka.producer.high-throughput: batches sends (linger, batch size, compression)
+ * and enables idempotence, on whichever producer factory is in use.
+ */
+@Configuration
+public class LocationKafkaConfig {
+
+    @Value("${app.kafka.producer.high-throughput:false}")
+    private boolean highThroughput;
+
+    @Value("${app.kafka.producer.linger-ms:20}")
+    private int lingerMs;
+
+    @Value("${app.kafka.producer.batch-size:131072}")
+    private int batchSize;
+
+    @Value("${app.kafka.producer.compression-type:lz4}")
+    private String compressionType;
+
+    // Applied by Boot to its auto-configured producer factory (json format)
+    @Bean
+    DefaultKafkaProducerFactoryCustomizer locationProducerTuning() {
+        return producerFactory -> producerFactory.updateConfigs(producerOverrides());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.kafka.location-format", havingValue = "binary")
+    ProducerFactory<String, LocationMessage> locationProducerFactory(KafkaProperties kafkaProperties,
+                                                                     ObjectProvider<SslBundles> sslBundles) {
+        Map<String, Object> props = kafkaProperties.buildProducerProperties(sslBundles.getIfAvailable());
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, LocationMessageSerializer.class);
+        props.putAll(producerOverrides());
+        return new DefaultKafkaProducerFactory<>(props);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.kafka.location-format", havingValue = "binary")
+    KafkaTemplate<String, LocationMessage> locationKafkaTemplate(ProducerFactory<String, LocationMessage> locationProducerFactory) {
+        return new KafkaTemplate<>(locationProducerFactory);
+    }
+
+    private Map<String, Object> producerOverrides() {
+        Map<String, Object> overrides = new HashMap<>();
+        if (!highThroughput) {
+            return overrides;
+        }
+        // Wait a little to fill larger, compressed batches; idempotence keeps retries from duplicating or reordering
+        overrides.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        overrides.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        overrides.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        overrides.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        overrides.put(ProducerConfig.ACKS_CONFIG, "all");
+        overrides.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        return overrides;
+    }
+}
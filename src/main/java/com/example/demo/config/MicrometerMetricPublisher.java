@@ -0,0 +1,103 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.metrics.SdkMetric;
+
+/**
+ * Publishes AWS SDK client metrics to Micrometer.
+ *
+ * Per API call: aws.sdk.api.call (timer, by service, operation and outcome) and
+ * aws.sdk.api.call.retries. Per HTTP client pool, from the last attempt seen:
+ * aws.sdk.http.concurrency.{max,leased,available,pending} gauges and the
+ * aws.sdk.http.concurrency.acquire timer, tagged by service and http_client (Apache,
+ * NettyNio, AwsCommonRuntime). Pending acquires above zero mean the pool is saturated.
+ *
+ * publish() runs on the SDK's own threads after every call, so it only updates meters.
+ */
+public class MicrometerMetricPublisher implements MetricPublisher {
+
+    private final MeterRegistry meterRegistry;
+
+    // Latest pool readings per service/client/metric, read by the gauges
+    private final Map<String, AtomicInteger> concurrency = new ConcurrentHashMap<>();
+
+    public MicrometerMetricPublisher(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void publish(MetricCollection apiCall) {
+        String service = first(apiCall, CoreMetric.SERVICE_ID, "unknown");
+        Tags tags = Tags.of("service", service, "operation", first(apiCall, CoreMetric.OPERATION_NAME, "unknown"));
+
+        Duration duration = first(apiCall, CoreMetric.API_CALL_DURATION, null);
+        if (duration != null) {
+            boolean successful = first(apiCall, CoreMetric.API_CALL_SUCCESSFUL, false);
+            meterRegistry.timer("aws.sdk.api.call", tags.and("outcome", successful ? "success" : "error"))
+                    .record(duration);
+        }
+        Integer retries = first(apiCall, CoreMetric.RETRY_COUNT, 0);
+        if (retries > 0) {
+            meterRegistry.counter("aws.sdk.api.call.retries", tags).increment(retries);
+        }
+
+        // ApiCall -> ApiCallAttempt -> HttpClient
+        for (MetricCollection attempt : apiCall.children()) {
+            for (MetricCollection http : attempt.children()) {
+                publishHttp(service, http);
+            }
+        }
+    }
+
+    private void publishHttp(String service, MetricCollection http) {
+        String client = first(http, HttpMetric.HTTP_CLIENT_NAME, null);
+        if (client == null) {
+            return;
+        }
+        Duration acquire = first(http, HttpMetric.CONCURRENCY_ACQUIRE_DURATION, null);
+        if (acquire != null) {
+            meterRegistry.timer("aws.sdk.http.concurrency.acquire", "service", service, "http_client", client)
+                    .record(acquire);
+        }
+        updateGauge(service, client, "max", first(http, HttpMetric.MAX_CONCURRENCY, null));
+        updateGauge(service, client, "leased", first(http, HttpMetric.LEASED_CONCURRENCY, null));
+        updateGauge(service, client, "available", first(http, HttpMetric.AVAILABLE_CONCURRENCY, null));
+        updateGauge(service, client, "pending", first(http, HttpMetric.PENDING_CONCURRENCY_ACQUIRES, null));
+    }
+
+    private void updateGauge(String service, String client, String kind, Integer value) {
+        if (value == null) {
+            return;
+        }
+        concurrency.computeIfAbsent(service + '|' + client + '|' + kind, k -> {
+            AtomicInteger holder = new AtomicInteger();
+            Gauge.builder("aws.sdk.http.concurrency." + kind, holder, AtomicInteger::get)
+                    .tag("service", service)
+                    .tag("http_client", client)
+                    .register(meterRegistry);
+            return holder;
+        }).set(value);
+    }
+
+    private static <T> T first(MetricCollection metrics, SdkMetric<T> metric, T defaultValue) {
+        List<T> values = metrics.metricValues(metric);
+        return values.isEmpty() ? defaultValue : values.get(0);
+    }
+
+    @Override
+    public void close() {
+        // Meters belong to the registry
+    }
+}
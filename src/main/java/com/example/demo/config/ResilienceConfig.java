@@ -0,0 +1,121 @@
+package com.example.demo.config;
+
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.demo.service.GoogleApiException;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Isolation for the Google People API, called at login.
+ *
+ * A bulkhead caps concurrent calls (app.google-api.bulkhead.max-concurrent-calls);
+ * calls over the cap are rejected at once instead of queueing. A circuit breaker opens
+ * when too many calls fail or are slow, and then rejects logins immediately until
+ * app.google-api.circuit-breaker.open-seconds have passed. Errors caused by the
+ * caller (403, other 4xx) do not count as failures.
+ *
+ * State and counters are exported as resilience4j.circuitbreaker.* and
+ * resilience4j.bulkhead.* metrics and through the googlePeopleApi health indicator.
+ */
+@Configuration
+public class ResilienceConfig {
+
+    public static final String GOOGLE_PEOPLE_API = "googlePeopleApi";
+
+    private static final Status CIRCUIT_OPEN = new Status("CIRCUIT_OPEN");
+    private static final Status CIRCUIT_HALF_OPEN = new Status("CIRCUIT_HALF_OPEN");
+
+    @Bean
+    CircuitBreakerRegistry circuitBreakerRegistry(MeterRegistry meterRegistry) {
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.ofDefaults();
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    @Bean
+    BulkheadRegistry bulkheadRegistry(MeterRegistry meterRegistry) {
+        BulkheadRegistry registry = BulkheadRegistry.ofDefaults();
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    @Bean
+    CircuitBreaker googlePeopleApiCircuitBreaker(CircuitBreakerRegistry registry,
+                                                 @Value("${app.google-api.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+                                                 @Value("${app.google-api.circuit-breaker.slow-call-ms:3000}") long slowCallMs,
+                                                 @Value("${app.google-api.circuit-breaker.window-size:50}") int windowSize,
+                                                 @Value("${app.google-api.circuit-breaker.minimum-calls:20}") int minimumCalls,
+                                                 @Value("${app.google-api.circuit-breaker.open-seconds:30}") long openSeconds) {
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .slidingWindowSize(windowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(Duration.ofMillis(slowCallMs))
+                .slowCallRateThreshold(failureRateThreshold)
+                .waitDurationInOpenState(Duration.ofSeconds(openSeconds))
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .recordException(ResilienceConfig::isGoogleFailure)
+                .build();
+        return registry.circuitBreaker(GOOGLE_PEOPLE_API, config);
+    }
+
+    @Bean
+    Bulkhead googlePeopleApiBulkhead(BulkheadRegistry registry,
+                                     @Value("${app.google-api.bulkhead.max-concurrent-calls:50}") int maxConcurrentCalls) {
+        BulkheadConfig config = BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ZERO)
+                .build();
+        return registry.bulkhead(GOOGLE_PEOPLE_API, config);
+    }
+
+    // Reports the breaker without failing overall health: an open circuit only affects logins
+    @Bean
+    HealthIndicator googlePeopleApiHealthIndicator(CircuitBreaker googlePeopleApiCircuitBreaker,
+                                                   Bulkhead googlePeopleApiBulkhead) {
+        return () -> {
+            CircuitBreaker.State state = googlePeopleApiCircuitBreaker.getState();
+            CircuitBreaker.Metrics metrics = googlePeopleApiCircuitBreaker.getMetrics();
+            Status status = switch (state) {
+                case OPEN, FORCED_OPEN -> CIRCUIT_OPEN;
+                case HALF_OPEN -> CIRCUIT_HALF_OPEN;
+                default -> Status.UP;
+            };
+            return Health.status(status)
+                    .withDetail("state", state)
+                    .withDetail("failureRate", metrics.getFailureRate())
+                    .withDetail("slowCallRate", metrics.getSlowCallRate())
+                    .withDetail("bufferedCalls", metrics.getNumberOfBufferedCalls())
+                    .withDetail("notPermittedCalls", metrics.getNumberOfNotPermittedCalls())
+                    .withDetail("bulkheadAvailableCalls", googlePeopleApiBulkhead.getMetrics().getAvailableConcurrentCalls())
+                    .build();
+        };
+    }
+
+    private static boolean isGoogleFailure(Throwable e) {
+        if (e instanceof GeneralSecurityException) {
+            return false; // 403: scopes the user did not grant
+        }
+        if (e instanceof GoogleApiException apiException) {
+            return apiException.isServerError();
+        }
+        return true; // Timeouts, connection and decoding errors
+    }
+}
@@ -1,8 +1,24 @@
 package com.example.demo.config;
 
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+
+import io.netty.channel.ChannelOption;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.PrematureCloseException;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
 
 @Configuration
 public class WebClientConfig {
@@ -29,4 +45,90 @@ public class WebClientConfig {
         // Create a general-purpose WebClient instance from the builder
         return builder.build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Client for Google APIs (People API at login). Own bounded, keep-alive connection
+     * pool, so a login spike waits for a connection for at most the acquire timeout
+     * instead of opening unbounded connections; connect and response timeouts; HTTP/2
+     * where Google offers it; retries with jittered backoff on 5xx and failed connects.
+     *
+     * Pool gauges (reactor.netty.connection.provider.*) and request latency
+     * (reactor.netty.http.client.*) are published to Micrometer, tagged by remote host.
+     */
+    @Bean
+    WebClient googleApiWebClient(WebClient.Builder builder,
+                                 @Value("${app.google-api.max-connections:50}") int maxConnections,
+                                 @Value("${app.google-api.pending-acquire-max:500}") int pendingAcquireMax,
+                                 @Value("${app.google-api.pending-acquire-timeout-ms:2000}") long pendingAcquireTimeoutMs,
+                                 @Value("${app.google-api.max-idle-time-s:30}") long maxIdleTimeSeconds,
+                                 @Value("${app.google-api.max-life-time-s:300}") long maxLifeTimeSeconds,
+                                 @Value("${app.google-api.connect-timeout-ms:2000}") int connectTimeoutMs,
+                                 @Value("${app.google-api.response-timeout-ms:5000}") long responseTimeoutMs,
+                                 @Value("${app.google-api.retry.max-retries:2}") int maxRetries,
+                                 @Value("${app.google-api.retry.min-backoff-ms:100}") long retryMinBackoffMs) {
+        ConnectionProvider pool = ConnectionProvider.builder("google-api")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMax)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofSeconds(maxIdleTimeSeconds))
+                .maxLifeTime(Duration.ofSeconds(maxLifeTimeSeconds))
+                .evictInBackground(Duration.ofSeconds(maxIdleTimeSeconds))
+                .metrics(true)
+                .build();
+
+        HttpClient httpClient = HttpClient.create(pool)
+                .protocol(HttpProtocol.H2, HttpProtocol.HTTP11) // Negotiated over TLS (ALPN)
+                .secure()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs))
+                // Tag by path only: query strings would explode the metric cardinality
+                .metrics(true, uri -> {
+                    int query = uri.indexOf('?');
+                    return query < 0 ? uri : uri.substring(0, query);
+                });
+
+        return builder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(retryOnServerError(maxRetries, Duration.ofMillis(retryMinBackoffMs)))
+                .build();
+    }
+
+    // Re-sends idempotent requests that got a 5xx or could not connect. The last attempt's
+    // response is passed on as is, so callers still see Google's status and body.
+    private static ExchangeFilterFunction retryOnServerError(int maxRetries, Duration minBackoff) {
+        return (request, next) -> {
+            if (maxRetries <= 0 || !request.method().matches("GET")) {
+                return next.exchange(request);
+            }
+            return Mono.defer(() -> {
+                AtomicInteger attempts = new AtomicInteger();
+                return Mono.defer(() -> {
+                            attempts.incrementAndGet();
+                            return next.exchange(request);
+                        })
+                        .flatMap(response -> response.statusCode().is5xxServerError() && attempts.get() <= maxRetries
+                                ? response.releaseBody().then(Mono.error(new ServerErrorStatus()))
+                                : Mono.just(response))
+                        .retryWhen(Retry.backoff(maxRetries, minBackoff)
+                                .jitter(0.5)
+                                .filter(WebClientConfig::isRetryable)
+                                .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+            });
+        };
+    }
+
+    // Transport errors reach filters wrapped in a WebClientRequestException
+    private static boolean isRetryable(Throwable e) {
+        Throwable cause = e instanceof WebClientRequestException ? e.getCause() : e;
+        return cause instanceof ServerErrorStatus || cause instanceof ConnectException
+                || cause instanceof PrematureCloseException;
+    }
+
+    // Marker for a 5xx answer, only used to drive the retry
+    private static final class ServerErrorStatus extends RuntimeException {
+        ServerErrorStatus() {
+            super(null, null, false, false);
+        }
+    }
+}
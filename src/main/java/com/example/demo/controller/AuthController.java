@@ -25,6 +25,11 @@ import com.example.demo.model.User;
 import com.example.demo.service.GoogleAuthService;
 import com.example.demo.service.JwtTokenProvider;
 
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
 import jakarta.servlet.http.HttpServletResponse; // Needed for adding header directly (alternative)
 
 @RestController
@@ -53,48 +58,56 @@ public class AuthController {
 
     
     // --- Modified /google Endpoint ---
+    // Non-blocking: the request thread is released while Google and DynamoDB are called,
+    // and the response (with the JWT cookie) is written when the login pipeline completes.
     @PostMapping("/google")
     // Return only User now, token is in cookie
-    public ResponseEntity<User> authenticateGoogle(@RequestBody GoogleLoginRequest requestBody, HttpServletResponse httpServletResponse) {
+    public Mono<ResponseEntity<User>> authenticateGoogle(@RequestBody GoogleLoginRequest requestBody) {
         String accessToken = requestBody.getAccessToken();
         log.info("AuthController: /google request with Access Token: {}", (StringUtils.hasText(accessToken) ? "present" : "null or empty"));
 
         if (!StringUtils.hasText(accessToken)) {
-             return ResponseEntity.badRequest().build();
+             return Mono.just(ResponseEntity.badRequest().build());
         }
 
-        try {
-            // Step 1: Verify Google Token & process user in DB (via Service)
-            User user = googleAuthService.verifyAndProcessGoogleUser(accessToken);
-
-            // Step 2: Generate Your Application's JWT
-            String jwt = jwtTokenProvider.generateToken(user);
-
-            // Step 3: Create HttpOnly Cookie
-            ResponseCookie cookie = ResponseCookie.from(jwtCookieName, jwt)
-                    .httpOnly(true)       // Essential: Prevents JS access
-                    .secure(true)         // Essential: Send only over HTTPS (Requires HTTPS setup)
-                                          // Set secure(false) ONLY for local HTTP testing if needed, NEVER in prod
-                    .path("/")            // Cookie accessible for all paths
-                    .maxAge(Duration.ofSeconds(jwtCookieMaxAgeSeconds)) // Set expiration
-                    .sameSite("Lax")      // Good default CSRF mitigation (use "Strict" if applicable)
-                    // .domain("yourdomain.com") // Set if needed for subdomains
-                    .build();
-
-            // Step 4: Add Cookie to Response Header
-            httpServletResponse.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
-            log.info("AuthController: Set HttpOnly cookie '{}' for user ID: {}", jwtCookieName, user.getUserId());
-
-            // Step 5: Return User data in response body (Frontend needs this)
-            return ResponseEntity.ok(user);
-
-        } catch (IllegalArgumentException | GeneralSecurityException | IOException e) {
-            log.error("Authentication failed: {}", e.getMessage());
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        } catch (Exception e) {
-             log.error("Internal error during authentication: {}", e.getMessage(), e);
-             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+        // Step 1: Verify Google Token & process user in DB (via Service)
+        return googleAuthService.processGoogleUser(accessToken)
+                .map(user -> {
+                    // Step 2: Generate Your Application's JWT
+                    String jwt = jwtTokenProvider.generateToken(user);
+
+                    // Step 3: Create HttpOnly Cookie
+                    ResponseCookie cookie = ResponseCookie.from(jwtCookieName, jwt)
+                            .httpOnly(true)       // Essential: Prevents JS access
+                            .secure(true)         // Essential: Send only over HTTPS (Requires HTTPS setup)
+                                                  // Set secure(false) ONLY for local HTTP testing if needed, NEVER in prod
+                            .path("/")            // Cookie accessible for all paths
+                            .maxAge(Duration.ofSeconds(jwtCookieMaxAgeSeconds)) // Set expiration
+                            .sameSite("Lax")      // Good default CSRF mitigation (use "Strict" if applicable)
+                            // .domain("yourdomain.com") // Set if needed for subdomains
+                            .build();
+                    log.info("AuthController: Set HttpOnly cookie '{}' for user ID: {}", jwtCookieName, user.getUserId());
+
+                    // Step 4: Add Cookie to Response Header, return User data in response body (Frontend needs this)
+                    return ResponseEntity.ok()
+                            .header(HttpHeaders.SET_COOKIE, cookie.toString())
+                            .body(user);
+                })
+                .onErrorResume(e -> {
+                    Throwable cause = Exceptions.unwrap(e);
+                    if (cause instanceof CallNotPermittedException || cause instanceof BulkheadFullException) {
+                        // Google People API circuit open or too many logins in flight: fail fast
+                        log.warn("Google login rejected: {}", cause.getMessage());
+                        return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+                    }
+                    if (cause instanceof IllegalArgumentException || cause instanceof GeneralSecurityException
+                            || cause instanceof IOException) {
+                        log.error("Authentication failed: {}", cause.getMessage());
+                        return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+                    }
+                    log.error("Internal error during authentication: {}", cause.getMessage(), cause);
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+                });
     }
 
     // --- NEW: Logout Endpoint ---
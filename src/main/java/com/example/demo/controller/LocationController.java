@@ -20,6 +20,7 @@ import org.springframework.web.bind.annotation.RestController;
 import com.example.demo.dto.LocationMessage;
 import com.example.demo.security.UserPrincipal;
 import com.example.demo.service.LocationKafkaProducer;
+import com.example.demo.service.LocationUpdateThrottle;
 
 @RestController
 @RequestMapping("/api/location")
@@ -32,12 +33,15 @@ public class LocationController {
 
  // --- Inject the Kafka Producer Service ---
  private final LocationKafkaProducer locationKafkaProducer;
+ private final LocationUpdateThrottle locationUpdateThrottle;
  // ---------------------------------------
 
  // --- Updated Constructor ---
  @Autowired
- public LocationController(LocationKafkaProducer locationKafkaProducer) { // Inject via constructor
+ public LocationController(LocationKafkaProducer locationKafkaProducer,
+                           LocationUpdateThrottle locationUpdateThrottle) { // Inject via constructor
      this.locationKafkaProducer = locationKafkaProducer;
+     this.locationUpdateThrottle = locationUpdateThrottle;
      // Inject LocationService for saving to DB if needed
      // this.locationService = locationService;
  }
@@ -56,18 +60,23 @@ public class LocationController {
 
      // Populate backend fields
      locationData.setUserId(userId);
-     long epochMilli = System.currentTimeMillis();
-     Instant instant = Instant.ofEpochMilli(epochMilli);
-     ZonedDateTime zonedDateTimeIST = ZonedDateTime.ofInstant(instant, INDIA_ZONE_ID);
+     Instant now = Instant.now();
+     ZonedDateTime zonedDateTimeIST = ZonedDateTime.ofInstant(now, INDIA_ZONE_ID);
      String userDateTimeIST = zonedDateTimeIST.format(IST_FORMATTER);
      locationData.setUserDateTime(userDateTimeIST);
+     locationData.setUserEpochMillis(now.toEpochMilli());
 
-     log.info("Processed LocationMessage: {}", locationData);
+     log.debug("Processed LocationMessage: {}", locationData);
+
+     // Same bucket, same cell, barely moved: nothing downstream would change
+     if (!locationUpdateThrottle.shouldForward(locationData, now.toEpochMilli())) {
+         return ResponseEntity.ok("Location received and queued.");
+     }
 
      // --- Send message to Kafka ---
      try {
          locationKafkaProducer.sendMessage(locationData);
-         log.info("Location message queued to Kafka for user {}", userId);
+         log.debug("Location message queued to Kafka for user {}", userId);
      } catch (Exception e) {
          // Log if the send initiation itself fails (less common)
          log.error("Error initiating send to Kafka for user {}: {}", userId, e.getMessage());
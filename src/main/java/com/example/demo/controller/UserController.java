@@ -1,7 +1,6 @@
 package com.example.demo.controller;
 
 import java.util.List;
-import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,6 +19,7 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.example.demo.dto.UpdateProfileRequest;
+import com.example.demo.dto.UserCard;
 import com.example.demo.model.User;
 import com.example.demo.security.UserPrincipal;
 import com.example.demo.service.UserService;
@@ -43,13 +43,13 @@ public class UserController {
 
 //    @SuppressWarnings("unused")
 	@GetMapping("/nearby")
-    public ResponseEntity<Set<User>> getNearbyUsersForAuthenticatedUser(@AuthenticationPrincipal UserPrincipal currentUser) {
-    	 String userId = currentUser.getUser().getUserId(); 
+    public ResponseEntity<List<UserCard>> getNearbyUsersForAuthenticatedUser(@AuthenticationPrincipal UserPrincipal currentUser) {
+    	 String userId = currentUser.getId(); 
 
 
       	
 
-        Set<User> nearbyUsers = userService.getNearbyUsers(userId);
+        List<UserCard> nearbyUsers = userService.getNearbyUsers(userId);
 
         if (nearbyUsers.isEmpty()) {
             return ResponseEntity.noContent().build();
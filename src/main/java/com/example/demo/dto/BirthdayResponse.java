@@ -6,10 +6,11 @@ import lombok.Data;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 @Data
-public class BirthdayResponse {
+public class BirthdayResponse implements HasPersonMetadata {
     public PersonMetadata metadata; // Include metadata to potentially find the PROFILE birthday
     public GoogleDate date;
     // getters/setters...
      public GoogleDate getDate() { return date; }
+     @Override
      public PersonMetadata getMetadata() { return metadata; }
 }
\ No newline at end of file
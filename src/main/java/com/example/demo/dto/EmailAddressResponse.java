@@ -6,11 +6,12 @@ import lombok.Data;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 @Data
-public class EmailAddressResponse {
+public class EmailAddressResponse implements HasPersonMetadata {
     public PersonMetadata metadata;
     public String value; // The email address
     public String type;
     // getters/setters...
     public String getValue() { return value; }
+    @Override
     public PersonMetadata getMetadata() { return metadata; }
 }
\ No newline at end of file
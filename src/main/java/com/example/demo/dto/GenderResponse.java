@@ -6,12 +6,13 @@ import lombok.Data;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 @Data
-public class GenderResponse { // Added DTO for Gender
+public class GenderResponse implements HasPersonMetadata { // Added DTO for Gender
     public PersonMetadata metadata;
     public String value; // e.g., "male", "female", "unspecified"
     public String formattedValue; // e.g., "Male", "Female", "Unspecified"
     // getters/setters...
      public String getValue() { return value; }
      public String getFormattedValue() { return formattedValue; }
+     @Override
      public PersonMetadata getMetadata() { return metadata; }
 }
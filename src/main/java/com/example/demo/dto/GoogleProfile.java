@@ -0,0 +1,20 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+
+import lombok.Value;
+
+/**
+ * The fields we keep from a People API response, already reduced to their primary
+ * values. Two logins with an equal profile need no changes to the stored user.
+ */
+@Value
+public class GoogleProfile {
+
+    String googleId;
+    String email;
+    String name;
+    String pictureUrl;
+    String gender;
+    LocalDate dateOfBirth;
+}
@@ -0,0 +1,23 @@
+package com.example.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * People API field entries (names, emailAddresses, photos, ...) that carry per-entry
+ * metadata, such as whether the entry is the primary one and where it came from.
+ */
+public interface HasPersonMetadata {
+
+    PersonMetadata getMetadata();
+
+    @JsonIgnore
+    default boolean isPrimary() {
+        PersonMetadata metadata = getMetadata();
+        return metadata != null && Boolean.TRUE.equals(metadata.getPrimary());
+    }
+
+    default boolean hasSourceType(String type) {
+        PersonMetadata metadata = getMetadata();
+        return metadata != null && metadata.getSource() != null && type.equals(metadata.getSource().getType());
+    }
+}
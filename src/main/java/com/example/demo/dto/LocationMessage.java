@@ -1,5 +1,7 @@
 package com.example.demo.dto;
 // Add imports for Lombok or generate Getters/Setters/toString manually
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -17,4 +19,8 @@ public class LocationMessage {
     private Double longitude; // Use Double to allow null check from request body
     private String userDateTime; // IST Formatted String "YYYY-MM-DDTHH:mm:ss+05:30[Asia/Kolkata]", SET BY BACKEND   
 
+    // The same instant as epoch millis, when already known (controller, binary records); not part of the JSON layout
+    @JsonIgnore
+    private Long userEpochMillis;
+
 }
\ No newline at end of file
@@ -6,12 +6,13 @@ import lombok.Data;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 @Data
-public class NameResponse {
+public class NameResponse implements HasPersonMetadata {
     public PersonMetadata metadata;
     public String displayName;
     public String familyName;
     public String givenName;
     // getters/setters...
     public String getDisplayName() { return displayName; }
+    @Override
     public PersonMetadata getMetadata() { return metadata; }
 }
\ No newline at end of file
@@ -7,7 +7,7 @@ import lombok.Data;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 @Data
-public class PhotoResponse {
+public class PhotoResponse implements HasPersonMetadata {
      public PersonMetadata metadata;
      public String url;
      @JsonProperty("default") // Maps the "default" JSON field to isDefault field
@@ -15,5 +15,6 @@ public class PhotoResponse {
      // getters/setters...
      public String getUrl() { return url; }
      public Boolean getIsDefault() { return isDefault; } // Getter follows Java convention
+     @Override
      public PersonMetadata getMetadata() { return metadata; }
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+import java.time.Period;
+
+import lombok.Value;
+
+/**
+ * Compact view of another user for list endpoints (/api/users/nearby). Field names
+ * match {@link com.example.demo.model.User} so clients can read either; account data
+ * (googleId, email, exact date of birth, timestamps) is never loaded for it.
+ */
+@Value
+public class UserCard {
+
+    public static final int BIO_PREVIEW_LENGTH = 140;
+
+    String userId;
+    String name;
+    String profileImagePath;
+    Integer age;
+    String gender;
+    String bio;
+
+    public static UserCard of(String userId, String name, String profileImagePath, String dateOfBirth,
+                              String gender, String bio, LocalDate today) {
+        Integer age = null;
+        if (dateOfBirth != null) {
+            try {
+                age = Period.between(LocalDate.parse(dateOfBirth), today).getYears();
+            } catch (RuntimeException e) {
+                // Unparseable date: show the card without an age
+            }
+        }
+        return new UserCard(userId, name, profileImagePath, age, gender, preview(bio));
+    }
+
+    private static String preview(String bio) {
+        if (bio == null || bio.length() <= BIO_PREVIEW_LENGTH) {
+            return bio;
+        }
+        int end = BIO_PREVIEW_LENGTH;
+        if (Character.isHighSurrogate(bio.charAt(end - 1))) {
+            end--; // Do not split a surrogate pair
+        }
+        return bio.substring(0, end) + "…";
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.demo.repository;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+
+/**
+ * Metrics and debug logging for DynamoDB calls made by the repositories.
+ *
+ * Every call is timed as dynamodb.operation, tagged with table, operation (getItem,
+ * putItem, query, batchGetItem), index ("primary" for the table itself) and outcome.
+ * Capacity units reported by DynamoDB (ReturnConsumedCapacity=TOTAL) are added to
+ * dynamodb.consumed.capacity with the same tags minus the outcome.
+ *
+ * With app.dynamodb.debug-logging=true each call is also logged on this class's logger
+ * at debug level, as key=value pairs.
+ */
+@Component
+public class DynamoDbInstrumentation {
+
+    private static final Logger log = LoggerFactory.getLogger(DynamoDbInstrumentation.class);
+
+    public static final String PRIMARY_INDEX = "primary";
+
+    private final MeterRegistry meterRegistry;
+    private final boolean debugLogging;
+
+    // Meters by tag combination, so the hot path does not rebuild meter IDs on every call
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> capacityCounters = new ConcurrentHashMap<>();
+
+    public DynamoDbInstrumentation(MeterRegistry meterRegistry,
+                                   @Value("${app.dynamodb.debug-logging:false}") boolean debugLogging) {
+        this.meterRegistry = meterRegistry;
+        this.debugLogging = debugLogging;
+    }
+
+    public <T> T record(String table, String operation, String index, Supplier<T> call) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = call.get();
+            success = true;
+            return result;
+        } finally {
+            stop(table, operation, index, success, start);
+        }
+    }
+
+    public <T> CompletableFuture<T> recordAsync(String table, String operation, String index,
+                                                Supplier<CompletableFuture<T>> call) {
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            stop(table, operation, index, false, start);
+            throw e;
+        }
+        return future.whenComplete((result, e) -> stop(table, operation, index, e == null, start));
+    }
+
+    public void consumedCapacity(String table, String operation, String index, ConsumedCapacity capacity) {
+        if (capacity == null || capacity.capacityUnits() == null) {
+            return;
+        }
+        capacityCounters.computeIfAbsent(table + '|' + operation + '|' + index,
+                        k -> Counter.builder("dynamodb.consumed.capacity")
+                                .description("Capacity units consumed, as reported by DynamoDB")
+                                .baseUnit("capacity_units")
+                                .tag("table", table)
+                                .tag("operation", operation)
+                                .tag("index", index)
+                                .register(meterRegistry))
+                .increment(capacity.capacityUnits());
+        if (debugLogging && log.isDebugEnabled()) {
+            log.debug("dynamodb table={} operation={} index={} capacityUnits={}", table, operation, index,
+                    capacity.capacityUnits());
+        }
+    }
+
+    private void stop(String table, String operation, String index, boolean success, long start) {
+        long elapsed = System.nanoTime() - start;
+        String outcome = success ? "success" : "error";
+        timers.computeIfAbsent(table + '|' + operation + '|' + index + '|' + outcome,
+                        k -> Timer.builder("dynamodb.operation")
+                                .description("Time spent in DynamoDB calls")
+                                .tag("table", table)
+                                .tag("operation", operation)
+                                .tag("index", index)
+                                .tag("outcome", outcome)
+                                .register(meterRegistry))
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        if (debugLogging && log.isDebugEnabled()) {
+            log.debug("dynamodb table={} operation={} index={} outcome={} durationMs={}", table, operation, index,
+                    outcome, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        }
+    }
+}
@@ -1,64 +1,112 @@
 package com.example.demo.repository;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+import com.example.demo.dto.UserCard;
 import com.example.demo.model.User;
 
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbIndex;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
 import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.TableMetadata;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.GetItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.GetItemEnhancedResponse;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.enhanced.dynamodb.model.PutItemEnhancedRequest;
 import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
-import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
-import software.amazon.awssdk.services.dynamodb.model.ListTablesResponse;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
 
 @Repository // Register as a Spring bean
 public class UserDynamoDbRepository {
 
     private static final Logger log = LoggerFactory.getLogger(UserDynamoDbRepository.class);
+    private static final String USERS_TABLE = "users";
+    private static final TableSchema<User> USER_SCHEMA = TableSchema.fromBean(User.class);
+    // BatchGetItem accepts at most 100 keys per request
+    private static final int BATCH_GET_MAX_KEYS = 100;
+    private static final int BATCH_GET_MAX_ATTEMPTS = 6;
+    private static final Duration BATCH_GET_BASE_BACKOFF = Duration.ofMillis(50);
+    // Attributes of a UserCard; "name" is a DynamoDB reserved word, hence the placeholder
+    private static final String CARD_PROJECTION = "userId, #n, profileImagePath, dateOfBirth, gender, bio";
+    private static final Map<String, String> CARD_ATTRIBUTE_NAMES = Map.of("#n", "name");
     private final DynamoDbTable<User> userTable;
+    // Same table through the non-blocking client
+    private final DynamoDbAsyncTable<User> asyncUserTable;
     // Define GSI names as constants
     private static final String GOOGLE_ID_INDEX = "googleId-index";
     private static final String EMAIL_INDEX = "email-index";
-    private final DynamoDbClient client;
+    private final DynamoDbAsyncClient asyncClient;
+    // Per-operation timers and consumed capacity (dynamodb.* metrics)
+    private final DynamoDbInstrumentation instrumentation;
+    // BatchGetItem requests in flight at once for one findAllByIds call
+    private final int batchGetConcurrency;
 
 
-    public UserDynamoDbRepository(DynamoDbEnhancedClient enhancedClient, DynamoDbClient client) {
-        this.userTable = enhancedClient.table("users", TableSchema.fromBean(User.class));
-        this.client = client;
+    public UserDynamoDbRepository(DynamoDbEnhancedClient enhancedClient, DynamoDbEnhancedAsyncClient enhancedAsyncClient,
+                                  DynamoDbAsyncClient asyncClient,
+                                  DynamoDbInstrumentation instrumentation,
+                                  @Value("${app.dynamodb.batch-get.concurrency:4}") int batchGetConcurrency) {
+        this.userTable = enhancedClient.table(USERS_TABLE, USER_SCHEMA);
+        this.asyncUserTable = enhancedAsyncClient.table(USERS_TABLE, USER_SCHEMA);
+        this.asyncClient = asyncClient;
+        this.instrumentation = instrumentation;
+        this.batchGetConcurrency = Math.max(batchGetConcurrency, 1);
     }
 
     public void save(User user) {
         log.debug("Saving user with ID: {}", user.getUserId());
-        System.out.print(user);
 //        user.updateTimestamps(); // Update timestamps before saving
-        userTable.putItem(user); // Use putItem for both create and update
+        // Use putItem for both create and update
+        var response = instrumentation.record(USERS_TABLE, "putItem", DynamoDbInstrumentation.PRIMARY_INDEX,
+                () -> userTable.putItemWithResponse(putRequest(user)));
+        instrumentation.consumedCapacity(USERS_TABLE, "putItem", DynamoDbInstrumentation.PRIMARY_INDEX, response.consumedCapacity());
         log.info("Successfully saved user with ID: {}", user.getUserId());
     }
 
     public Optional<User> findById(String userId) {
+        return findById(userId, false);
+    }
+
+    // consistentRead: see every write acknowledged before the read, at twice the read capacity.
+    // Use it when the result is cached, so a stale copy is not kept for the cache's lifetime.
+    public Optional<User> findById(String userId, boolean consistentRead) {
         log.debug("Finding user by ID: {}", userId);
-        User user = userTable.getItem(Key.builder().partitionValue(userId).build());
-        return Optional.ofNullable(user);
+        GetItemEnhancedResponse<User> response = instrumentation.record(USERS_TABLE, "getItem", DynamoDbInstrumentation.PRIMARY_INDEX,
+                () -> userTable.getItemWithResponse(getRequest(userId, consistentRead)));
+        instrumentation.consumedCapacity(USERS_TABLE, "getItem", DynamoDbInstrumentation.PRIMARY_INDEX, response.consumedCapacity());
+        return Optional.ofNullable(response.attributes());
     }
 
     public Optional<User> findByGoogleId(String googleId) {
         log.debug("Finding user by Google ID using index '{}': {}", GOOGLE_ID_INDEX, googleId);
         try {
-            DynamoDbIndex<User> index = userTable.index(GOOGLE_ID_INDEX);
-            QueryConditional queryConditional = QueryConditional.keyEqualTo(Key.builder().partitionValue(googleId).build());
-            var results = index.query(queryConditional);
-
-            ListTablesResponse tables = client.listTables();
-            System.out.println("Tables: " + tables.tableNames());
             // Assuming googleId is unique, we expect 0 or 1 item
-            // Query returns pages, get items from the first page
-            var users = results.stream().flatMap(page -> page.items().stream()).collect(Collectors.toList());
+            var users = queryIndex(GOOGLE_ID_INDEX, googleId);
 
             if (users.isEmpty()) {
                  log.debug("No user found for Google ID: {}", googleId);
@@ -80,10 +128,7 @@ public class UserDynamoDbRepository {
     public Optional<User> findByEmail(String email) {
          log.debug("Finding user by Email using index '{}': {}", EMAIL_INDEX, email);
          try {
-             DynamoDbIndex<User> index = userTable.index(EMAIL_INDEX);
-             QueryConditional queryConditional = QueryConditional.keyEqualTo(Key.builder().partitionValue(email).build());
-             var results = index.query(queryConditional);
-             var users = results.stream().flatMap(page -> page.items().stream()).collect(Collectors.toList());
+             var users = queryIndex(EMAIL_INDEX, email);
 
              if (users.isEmpty()) {
                  return Optional.empty();
@@ -97,5 +142,204 @@ public class UserDynamoDbRepository {
          }
      }
 
+    // All pages of an index query for one key, timed as a whole
+    private List<User> queryIndex(String indexName, String keyValue) {
+        DynamoDbIndex<User> index = userTable.index(indexName);
+        QueryEnhancedRequest request = queryRequest(keyValue);
+        return instrumentation.record(USERS_TABLE, "query", indexName, () -> {
+            List<User> users = new ArrayList<>();
+            for (Page<User> page : index.query(request)) {
+                instrumentation.consumedCapacity(USERS_TABLE, "query", indexName, page.consumedCapacity());
+                users.addAll(page.items());
+            }
+            return users;
+        });
+    }
+
+    private static GetItemEnhancedRequest getRequest(String userId, boolean consistentRead) {
+        return GetItemEnhancedRequest.builder()
+                .key(Key.builder().partitionValue(userId).build())
+                .consistentRead(consistentRead)
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .build();
+    }
+
+    private static PutItemEnhancedRequest<User> putRequest(User user) {
+        return PutItemEnhancedRequest.builder(User.class)
+                .item(user)
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .build();
+    }
+
+    private static QueryEnhancedRequest queryRequest(String keyValue) {
+        return QueryEnhancedRequest.builder()
+                .queryConditional(QueryConditional.keyEqualTo(Key.builder().partitionValue(keyValue).build()))
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .build();
+    }
+
+    // --- Non-blocking variants: complete on the SDK's I/O threads, never block the caller ---
+    // Callers can start several and combine them (CompletableFuture.allOf, Mono.zip) instead of
+    // waiting for each in turn. Do not block inside the callbacks: they run on the Netty event loop.
+
+    public CompletableFuture<Void> saveAsync(User user) {
+        log.debug("Saving user with ID: {} (async)", user.getUserId());
+        return instrumentation.recordAsync(USERS_TABLE, "putItem", DynamoDbInstrumentation.PRIMARY_INDEX,
+                        () -> asyncUserTable.putItemWithResponse(putRequest(user)))
+                .thenAccept(response -> {
+                    instrumentation.consumedCapacity(USERS_TABLE, "putItem", DynamoDbInstrumentation.PRIMARY_INDEX, response.consumedCapacity());
+                    log.info("Successfully saved user with ID: {}", user.getUserId());
+                });
+    }
+
+    public CompletableFuture<Optional<User>> findByIdAsync(String userId) {
+        return findByIdAsync(userId, false);
+    }
+
+    public CompletableFuture<Optional<User>> findByIdAsync(String userId, boolean consistentRead) {
+        log.debug("Finding user by ID: {} (async)", userId);
+        return instrumentation.recordAsync(USERS_TABLE, "getItem", DynamoDbInstrumentation.PRIMARY_INDEX,
+                        () -> asyncUserTable.getItemWithResponse(getRequest(userId, consistentRead)))
+                .thenApply(response -> {
+                    instrumentation.consumedCapacity(USERS_TABLE, "getItem", DynamoDbInstrumentation.PRIMARY_INDEX, response.consumedCapacity());
+                    return Optional.ofNullable(response.attributes());
+                });
+    }
+
+    public CompletableFuture<Optional<User>> findByGoogleIdAsync(String googleId) {
+        log.debug("Finding user by Google ID using index '{}': {} (async)", GOOGLE_ID_INDEX, googleId);
+        return queryIndexAsync(GOOGLE_ID_INDEX, googleId)
+                .thenApply(users -> {
+                    if (users.size() > 1) {
+                        log.warn("Multiple users found for Google ID: {}! Returning the first one.", googleId);
+                    }
+                    return users.isEmpty() ? Optional.<User>empty() : Optional.of(users.get(0));
+                });
+    }
+
+    public CompletableFuture<Optional<User>> findByEmailAsync(String email) {
+        log.debug("Finding user by Email using index '{}': {} (async)", EMAIL_INDEX, email);
+        return queryIndexAsync(EMAIL_INDEX, email)
+                .thenApply(users -> {
+                    if (users.size() > 1) {
+                        log.warn("Multiple users found for Email: {}! Returning the first one.", email);
+                    }
+                    return users.isEmpty() ? Optional.<User>empty() : Optional.of(users.get(0));
+                });
+    }
+
+    private CompletableFuture<List<User>> queryIndexAsync(String indexName, String keyValue) {
+        return instrumentation.recordAsync(USERS_TABLE, "query", indexName,
+                () -> Flux.from(asyncUserTable.index(indexName).query(queryRequest(keyValue)))
+                        .doOnNext(page -> instrumentation.consumedCapacity(USERS_TABLE, "query", indexName, page.consumedCapacity()))
+                        .flatMapIterable(page -> page.items())
+                        .collectList()
+                        .toFuture());
+    }
+
+    /**
+     * Loads the users with the given IDs with BatchGetItem: chunks of 100 keys, up to
+     * app.dynamodb.batch-get.concurrency chunks in flight. Keys DynamoDB leaves unprocessed
+     * (throttling, 16 MB response limit) are re-requested with jittered exponential backoff.
+     * Missing IDs are skipped and the order of the result is unspecified.
+     */
+    public List<User> findAllByIds(Collection<String> userIds) {
+        return findAllByIdsAsync(userIds).join();
+    }
+
+    public CompletableFuture<List<User>> findAllByIdsAsync(Collection<String> userIds) {
+        log.debug("Batch loading {} users", userIds == null ? 0 : userIds.size());
+        return batchGetItems(userIds, null, null)
+                .map(USER_SCHEMA::mapToItem)
+                .collectList()
+                .toFuture();
+    }
+
+    /**
+     * Same batched read as {@link #findAllByIds}, but only the attributes of a
+     * {@link UserCard} are requested (ProjectionExpression), which keeps the responses
+     * small for list endpoints.
+     */
+    public List<UserCard> findCardsByIds(Collection<String> userIds) {
+        return findCardsByIdsAsync(userIds).join();
+    }
+
+    public CompletableFuture<List<UserCard>> findCardsByIdsAsync(Collection<String> userIds) {
+        log.debug("Batch loading {} user cards", userIds == null ? 0 : userIds.size());
+        LocalDate today = LocalDate.now();
+        return batchGetItems(userIds, CARD_PROJECTION, CARD_ATTRIBUTE_NAMES)
+                .map(item -> UserCard.of(stringValue(item, "userId"), stringValue(item, "name"),
+                        stringValue(item, "profileImagePath"), stringValue(item, "dateOfBirth"),
+                        stringValue(item, "gender"), stringValue(item, "bio"), today))
+                .collectList()
+                .toFuture();
+    }
+
+    private static String stringValue(Map<String, AttributeValue> item, String attribute) {
+        AttributeValue value = item.get(attribute);
+        return value != null ? value.s() : null;
+    }
+
+    private Flux<Map<String, AttributeValue>> batchGetItems(Collection<String> userIds, String projection,
+                                                           Map<String, String> attributeNames) {
+        if (userIds == null || userIds.isEmpty()) {
+            return Flux.empty();
+        }
+        return Flux.fromIterable(new LinkedHashSet<>(userIds)) // BatchGetItem rejects duplicate keys
+                .buffer(BATCH_GET_MAX_KEYS)
+                .flatMap(chunk -> batchGet(keysFor(chunk, projection, attributeNames), 1), batchGetConcurrency)
+                .flatMapIterable(items -> items);
+    }
+
+    private static KeysAndAttributes keysFor(List<String> userIds, String projection, Map<String, String> attributeNames) {
+        List<Map<String, AttributeValue>> keys = new ArrayList<>(userIds.size());
+        for (String userId : userIds) {
+            keys.add(Key.builder().partitionValue(userId).build().keyMap(USER_SCHEMA, TableMetadata.primaryIndexName()));
+        }
+        return KeysAndAttributes.builder()
+                .keys(keys)
+                .projectionExpression(projection)
+                .expressionAttributeNames(attributeNames)
+                .build();
+    }
+
+    // Unprocessed keys come back with the original projection, so they can be re-sent as they are
+    private Mono<List<Map<String, AttributeValue>>> batchGet(KeysAndAttributes keys, int attempt) {
+        BatchGetItemRequest request = BatchGetItemRequest.builder()
+                .requestItems(Map.of(USERS_TABLE, keys))
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .build();
+        return Mono.fromFuture(() -> instrumentation.recordAsync(USERS_TABLE, "batchGetItem", DynamoDbInstrumentation.PRIMARY_INDEX,
+                        () -> asyncClient.batchGetItem(request)))
+                .flatMap(response -> {
+                    for (ConsumedCapacity capacity : response.consumedCapacity()) {
+                        instrumentation.consumedCapacity(USERS_TABLE, "batchGetItem", DynamoDbInstrumentation.PRIMARY_INDEX, capacity);
+                    }
+                    List<Map<String, AttributeValue>> items =
+                            new ArrayList<>(response.responses().getOrDefault(USERS_TABLE, List.of()));
+                    KeysAndAttributes unprocessed = response.unprocessedKeys().get(USERS_TABLE);
+                    if (unprocessed == null || unprocessed.keys().isEmpty()) {
+                        return Mono.just(items);
+                    }
+                    if (attempt >= BATCH_GET_MAX_ATTEMPTS) {
+                        log.warn("Giving up on {} unprocessed user keys after {} attempts", unprocessed.keys().size(), attempt);
+                        return Mono.just(items);
+                    }
+                    log.debug("Retrying {} unprocessed user keys (attempt {})", unprocessed.keys().size(), attempt + 1);
+                    return Mono.delay(backoff(attempt))
+                            .then(batchGet(unprocessed, attempt + 1))
+                            .map(rest -> {
+                                items.addAll(rest);
+                                return items;
+                            });
+                });
+    }
+
+    // Full jitter: a random wait up to base * 2^(attempt - 1), so throttled chunks do not retry in step
+    private static Duration backoff(int attempt) {
+        long ceilingMs = BATCH_GET_BASE_BACKOFF.toMillis() << Math.min(attempt - 1, 10);
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceilingMs + 1));
+    }
+
     // Add delete method if needed: userTable.deleteItem(...)
 }
\ No newline at end of file
@@ -18,18 +18,35 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Autowired // Or use constructor injection
     private UserDynamoDbRepository userDynamoDbRepository;
 
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
     // This method is called by Spring Security when it needs user details
     // The 'username' parameter will actually be the User ID extracted from the JWT subject
     @Override
 
     public UserDetails loadUserByUsername(String userId) throws UsernameNotFoundException { // ID is now String (UUID)
         // No need to parse to Long anymore
-        User user = userDynamoDbRepository.findById(userId) // Use new repo method
-            .orElseThrow(() ->
-                new UsernameNotFoundException("User not found with id : " + userId)
-            );
-        return new UserPrincipal(user);
+        // Served from the local cache; DynamoDB is only read on a miss
+        return userPrincipalCache.get(userId, id -> {
+            // Strongly consistent: the principal is cached, so it must not predate the last save
+            User user = userDynamoDbRepository.findById(id, true) // Use new repo method
+                .orElseThrow(() ->
+                    new UsernameNotFoundException("User not found with id : " + id)
+                );
+            return new UserPrincipal(user);
+        });
+    }
+
+    /**
+     * Principal for the stateless mode (app.auth.stateless-principal): built from the
+     * token claims without any lookup. The User is loaded, through the cache, only
+     * when a controller asks for it.
+     */
+    public UserPrincipal loadPrincipalFromClaims(String userId, String email, boolean enabled) {
+        return new UserPrincipal(userId, email, enabled, () -> ((UserPrincipal) loadUserByUsername(userId)).getUser());
     }
+
     // You might add another method if needed for loading by email during initial login/lookup
     // but this one is specifically for loading by ID from the JWT subject.
 }
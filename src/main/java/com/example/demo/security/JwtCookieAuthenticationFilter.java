@@ -18,6 +18,9 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import com.example.demo.service.JwtTokenProvider;
+import com.example.demo.service.JwtTokenProvider.TokenVerification;
+
+import io.jsonwebtoken.Claims;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -37,6 +40,10 @@ public class JwtCookieAuthenticationFilter extends OncePerRequestFilter { // Ren
     @Value("${app.jwt.cookie-name}")
     private String jwtCookieName;
 
+    // Build the principal from the token claims instead of loading the user on every request
+    @Value("${app.auth.stateless-principal:false}")
+    private boolean statelessPrincipal;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
@@ -46,20 +53,35 @@ public class JwtCookieAuthenticationFilter extends OncePerRequestFilter { // Ren
             String jwt = getJwtFromCookie(request);
             // --------------------------
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String userIdString = tokenProvider.getUserIdFromJWT(jwt);
+            // One parse: signature and expiry are checked once and the claims come back with the result
+            TokenVerification verification = StringUtils.hasText(jwt) ? tokenProvider.verifyToken(jwt) : null;
+            if (verification != null && verification.isValid()) {
+                Claims claims = verification.getClaims();
+                String userIdString = claims.getSubject();
+                UserDetails userDetails;
+                if (statelessPrincipal) {
+                    // Tokens issued before these claims existed have no "enabled": treat as enabled
+                    Boolean enabled = claims.get(JwtTokenProvider.ENABLED_CLAIM, Boolean.class);
+                    userDetails = customUserDetailsService.loadPrincipalFromClaims(userIdString,
+                            claims.get(JwtTokenProvider.EMAIL_CLAIM, String.class), enabled == null || enabled);
+                } else {
+                    userDetails = customUserDetailsService.loadUserByUsername(userIdString);
+                }
                 log.debug("Extracted User ID String from JWT Cookie: {}", userIdString);
 
-                UserDetails userDetails = customUserDetailsService.loadUserByUsername(userIdString);
-
-                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
-
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authentication);
-                log.debug("Set authentication in context for user identified by: {}", userIdString);
+                // Nothing downstream checks isEnabled(): a disabled account stays unauthenticated
+                if (userDetails.isEnabled()) {
+                    UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                            userDetails, null, userDetails.getAuthorities());
+
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                    log.debug("Set authentication in context for user identified by: {}", userIdString);
+                } else {
+                    log.warn("JWT Cookie belongs to disabled user {}, not authenticating", userIdString);
+                }
             } else {
-                 if (StringUtils.hasText(jwt)) log.warn("JWT Cookie validation failed.");
+                 if (verification != null) log.warn("JWT Cookie validation failed: {}", verification.getFailure());
                  // else log.trace("No JWT cookie found."); // Can be noisy
             }
         } catch (Exception ex) {
@@ -1,6 +1,8 @@
 package com.example.demo.security;
 import java.util.Collection;
 import java.util.Collections; // For simple roles
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -11,19 +13,41 @@ import com.example.demo.model.User;
 
 public class UserPrincipal implements UserDetails {
 
-    private final User user;
+    private final String id;
+    private final String email;
+    private final boolean enabled;
+
+    // Set up front, or loaded on first getUser() for principals built from token claims
+    private volatile User user;
+    private transient Supplier<User> userLoader;
+    // Not synchronized: the load is remote I/O and would pin a virtual thread's carrier
+    private final transient ReentrantLock loadLock = new ReentrantLock();
 
     public UserPrincipal(User user) {
         this.user = user;
+        this.id = user.getUserId();
+        this.email = user.getEmail();
+        this.enabled = true; // Not enforced for full principals (see isEnabled)
+    }
+
+    /**
+     * Lightweight principal built from verified token claims. The full {@link User}
+     * is only fetched if {@link #getUser()} is called.
+     */
+    public UserPrincipal(String id, String email, boolean enabled, Supplier<User> userLoader) {
+        this.id = id;
+        this.email = email;
+        this.enabled = enabled;
+        this.userLoader = userLoader;
     }
 
     // Helper method to easily get the database ID
     public String getId() {
-        return user.getUserId(); // Assuming your User entity has getId() returning Long
+        return id;
     }
 
     public String getEmail() {
-        return user.getEmail(); // Assuming User entity has getEmail()
+        return email;
     }
 
     @Override
@@ -46,7 +70,7 @@ public class UserPrincipal implements UserDetails {
     @Override
     public String getUsername() {
         // Typically return the email or a unique username field
-        return user.getEmail();
+        return email;
     }
 
     // --- Account status methods ---
@@ -68,12 +92,24 @@ public class UserPrincipal implements UserDetails {
 
     @Override
     public boolean isEnabled() {
-        return true; // Default to true (or check user.isEnabled() field)
+        return enabled; // true, or the "enabled" claim for principals built from the token
     }
 
 	public User getUser() {
-		// TODO Auto-generated method stub
-		return user;
+		User loaded = user;
+		if (loaded == null) {
+			loadLock.lock();
+			try {
+				if (user == null) {
+					user = userLoader.get();
+					userLoader = null;
+				}
+				loaded = user;
+			} finally {
+				loadLock.unlock();
+			}
+		}
+		return loaded;
 	}
 
     // Optional: equals and hashCode based on user ID or email
@@ -0,0 +1,80 @@
+package com.example.demo.security;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Bounded, short-lived cache of {@link UserPrincipal} by userId, so authenticated
+ * requests do not each pay a DynamoDB read in {@link CustomUserDetailsService}.
+ * Entries are dropped explicitly by the services that save the user; the TTL
+ * (app.security.principal-cache.ttl-seconds) bounds staleness for changes made
+ * outside this instance. Hit, miss and eviction metrics are exported as cache.*
+ * with cache=userPrincipals.
+ */
+@Component
+public class UserPrincipalCache {
+
+    // Async so a load runs outside the map's bin lock: a remote read inside it would pin a
+    // virtual thread's carrier and block other keys of the same bin
+    private final AsyncCache<String, UserPrincipal> cache;
+
+    public UserPrincipalCache(@Value("${app.security.principal-cache.max-size:10000}") long maxSize,
+                              @Value("${app.security.principal-cache.ttl-seconds:60}") long ttlSeconds,
+                              MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userPrincipals");
+    }
+
+    /**
+     * Returns the cached principal, loading it on a miss. Concurrent misses for the
+     * same user share one load; exceptions from the loader are not cached.
+     */
+    public UserPrincipal get(String userId, Function<String, UserPrincipal> loader) {
+        CompletableFuture<UserPrincipal> mine = new CompletableFuture<>();
+        CompletableFuture<UserPrincipal> entry = cache.get(userId, (id, executor) -> mine);
+        if (entry == mine) {
+            // This caller won the miss: load on its own thread, after the mapping is in place
+            UserPrincipal loaded = null;
+            try {
+                loaded = loader.apply(userId);
+                return loaded;
+            } finally {
+                // A null value drops the entry (a failed future would also be logged by the cache)
+                mine.complete(loaded);
+            }
+        }
+        UserPrincipal shared = entry.join();
+        // The load we waited for failed: try ourselves so the caller sees the actual error
+        return shared != null ? shared : loader.apply(userId);
+    }
+
+    // For callers that load asynchronously and fill the cache themselves; never waits for a load in progress
+    public UserPrincipal getIfPresent(String userId) {
+        CompletableFuture<UserPrincipal> entry = cache.getIfPresent(userId);
+        return entry != null && entry.isDone() && !entry.isCompletedExceptionally() ? entry.join() : null;
+    }
+
+    public void put(UserPrincipal principal) {
+        cache.put(principal.getId(), CompletableFuture.completedFuture(principal));
+    }
+
+    public void invalidate(String userId) {
+        if (userId != null) {
+            cache.synchronous().invalidate(userId);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+
+/**
+ * Error status returned by a Google API. Only 5xx statuses count as failures of the
+ * dependency itself; 4xx are caused by the caller's token or request.
+ */
+public class GoogleApiException extends IOException {
+
+    private final int statusCode;
+
+    public GoogleApiException(String message, int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public boolean isServerError() {
+        return statusCode >= 500;
+    }
+}
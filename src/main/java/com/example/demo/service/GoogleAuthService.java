@@ -7,6 +7,8 @@ import org.springframework.stereotype.Service;
 
 import com.example.demo.model.User;
 
+import reactor.core.publisher.Mono;
+
 @Service
 public interface GoogleAuthService {
 
@@ -23,4 +25,14 @@ public interface GoogleAuthService {
     User verifyAndProcessGoogleUser(String idTokenString)
             throws GeneralSecurityException, IOException, IllegalArgumentException;
 
+    /**
+     * Non-blocking version of {@link #verifyAndProcessGoogleUser(String)}: the People API
+     * call and the DynamoDB reads and writes run without holding a thread.
+     *
+     * @param accessToken The Google access token received from the frontend.
+     * @return Emits the persistent User entity, or an IllegalArgumentException if required
+     *         data is missing.
+     */
+    Mono<User> processGoogleUser(String accessToken);
+
 }
\ No newline at end of file
@@ -1,11 +1,19 @@
 package com.example.demo.service;
 import java.io.IOException; // Keep relevant exceptions
+import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException; // Keep relevant exceptions
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -14,13 +22,25 @@ import org.springframework.web.reactive.function.client.WebClient; // Import Web
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
 import com.example.demo.dto.BirthdayResponse;
-import com.example.demo.dto.EmailAddressResponse;
-import com.example.demo.dto.GenderResponse;
-import com.example.demo.dto.NameResponse;
+import com.example.demo.dto.GoogleProfile;
+import com.example.demo.dto.HasPersonMetadata;
 import com.example.demo.dto.PeopleApiResponse;
-import com.example.demo.dto.PersonMetadata;
+import com.example.demo.dto.PhotoResponse;
 import com.example.demo.model.User;
 import com.example.demo.repository.UserDynamoDbRepository;
+import com.example.demo.security.UserPrincipal;
+import com.example.demo.security.UserPrincipalCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
 import reactor.core.publisher.Mono; // Import Mono
 
@@ -31,16 +51,46 @@ public class GoogleAuthServiceImpl implements GoogleAuthService {
  private static final Logger log = LoggerFactory.getLogger(GoogleAuthServiceImpl.class);
 
  private final UserDynamoDbRepository userDynamoDbRepository;
+ private final UserPrincipalCache userPrincipalCache;
  private final WebClient webClient; // Use WebClient for HTTP calls
+ // People API isolation (see ResilienceConfig)
+ private final CircuitBreaker peopleApiCircuitBreaker;
+ private final Bulkhead peopleApiBulkhead;
+
+ // Short-lived login caches (app.auth.google-cache.ttl-seconds): the Google ID behind an
+ // access token, and the profile last reconciled with the users table per Google ID.
+ private final Cache<String, String> googleIdByToken;
+ private final Cache<String, ReconciledProfile> reconciledProfiles;
 
  // Remove GoogleIdTokenVerifier related fields/constructor params if any
 
 
  public GoogleAuthServiceImpl(UserDynamoDbRepository userDynamoDbRepository,
-                              WebClient.Builder webClientBuilder) { // Inject Builder
+                              UserPrincipalCache userPrincipalCache,
+                              @Qualifier("googleApiWebClient") WebClient webClient, // Pooled client for Google APIs (see WebClientConfig)
+                              CircuitBreaker googlePeopleApiCircuitBreaker,
+                              Bulkhead googlePeopleApiBulkhead,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.auth.google-cache.ttl-seconds:300}") long cacheTtlSeconds,
+                              @Value("${app.auth.google-cache.max-size:10000}") long cacheMaxSize) {
      this.userDynamoDbRepository = userDynamoDbRepository;
-     // Configure a WebClient instance (can customize base URLs, headers etc. if needed)
-     this.webClient = webClientBuilder.build();
+     this.userPrincipalCache = userPrincipalCache;
+     this.webClient = webClient;
+     this.peopleApiCircuitBreaker = googlePeopleApiCircuitBreaker;
+     this.peopleApiBulkhead = googlePeopleApiBulkhead;
+
+     this.googleIdByToken = Caffeine.newBuilder()
+             .maximumSize(cacheMaxSize)
+             .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+             .recordStats()
+             .build();
+     this.reconciledProfiles = Caffeine.newBuilder()
+             .maximumSize(cacheMaxSize)
+             .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+             .recordStats()
+             .build();
+     CaffeineCacheMetrics.monitor(meterRegistry, googleIdByToken, "googleAccessTokens");
+     CaffeineCacheMetrics.monitor(meterRegistry, reconciledProfiles, "googleProfiles");
  }
 
 
@@ -48,38 +98,60 @@ public class GoogleAuthServiceImpl implements GoogleAuthService {
  @Transactional
  public User verifyAndProcessGoogleUser(String accessToken)
          throws GeneralSecurityException, IOException, IllegalArgumentException { // Consider refining exceptions
+     // Blocking callers get the same pipeline as the reactive endpoint
+     return processGoogleUser(accessToken).block();
+ }
 
+ @Override
+ public Mono<User> processGoogleUser(String accessToken) {
      log.debug("Attempting to process Google Access Token via People API...");
 
+     // --- Fast path: same access token seen recently, profile already reconciled ---
+     String tokenKey = hashToken(accessToken);
+     String knownGoogleId = googleIdByToken.getIfPresent(tokenKey);
+     ReconciledProfile known = knownGoogleId != null ? reconciledProfiles.getIfPresent(knownGoogleId) : null;
+     Mono<User> fromToken = known == null ? Mono.empty() : loadReconciledUser(known)
+             .doOnNext(user -> log.debug("Reusing Google profile of {} cached for this access token", knownGoogleId));
+
      // --- Step 1: Call Google People API for combined info ---
-     PeopleApiResponse person = getPersonFromGoogle(accessToken);
-     if (person == null) {
-          throw new IllegalArgumentException("Failed to retrieve valid person data from Google People API.");
-     }
+     return fromToken.switchIfEmpty(Mono.defer(() -> getPersonFromGoogle(accessToken)
+             .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Failed to retrieve valid person data from Google People API.")))
+             .flatMap(person -> processPerson(tokenKey, person))));
+ }
 
+ private Mono<User> processPerson(String tokenKey, PeopleApiResponse person) {
      // --- Step 2: Extract required information ---
-     String googleId = extractGoogleId(person);
-     String email = extractPrimaryField(person.getEmailAddresses(), e -> e.value);
-     String name = extractPrimaryField(person.getNames(), n -> n.displayName);
-     String pictureUrl = extractPrimaryPhotoUrl(person); // Use specific logic for default photo
-     String gender = extractPrimaryField(person.getGenders(), g -> g.formattedValue != null ? g.formattedValue : g.value); // Prefer formatted value
-     LocalDate dob = extractBirthday(person);
-
+     GoogleProfile profile = toProfile(person);
+     String googleId = profile.getGoogleId();
      if (googleId == null) {
-         throw new IllegalArgumentException("Could not determine Google ID (sub) from People API response.");
+         return Mono.error(new IllegalArgumentException("Could not determine Google ID (sub) from People API response."));
      }
      log.info("People API data processed for Google ID: {}, Email: {}, Name: {}, Gender: {}, DOB: {}",
-              googleId, email, name, gender, dob);
+              googleId, profile.getEmail(), profile.getName(), profile.getGender(), profile.getDateOfBirth());
+     googleIdByToken.put(tokenKey, googleId);
+
+     // --- No change since the last login: the stored user is already up to date, skip find and save ---
+     ReconciledProfile previous = reconciledProfiles.getIfPresent(googleId);
+     Mono<User> unchanged = previous == null || !previous.profile.equals(profile) ? Mono.empty() : loadReconciledUser(previous)
+             .doOnNext(user -> log.debug("Google profile of {} unchanged, skipping user update", googleId));
 
      // --- Step 3: Find or Create user in local DB ---
-     final String finalEmail = email; // Need final variable for lambda
-     final String finalName = name;
-     final String finalPictureUrl = pictureUrl;
-     final String finalGender = gender;
-     final LocalDate finalDob = dob;
-
-     User user = userDynamoDbRepository.findByGoogleId(googleId)
-             .map(existingUser -> {
+     return unchanged.switchIfEmpty(Mono.defer(() -> findOrCreateUser(profile)
+                     .doOnNext(user -> reconciledProfiles.put(googleId, new ReconciledProfile(profile, user.getUserId())))))
+             .doOnNext(user -> log.info("Returning processed user with internal ID: {}, Email: {}", user.getUserId(), user.getEmail()));
+ }
+
+ private Mono<User> findOrCreateUser(GoogleProfile profile) {
+     final String googleId = profile.getGoogleId();
+     final String finalEmail = profile.getEmail(); // Need final variable for lambda
+     final String finalName = profile.getName();
+     final String finalPictureUrl = profile.getPictureUrl();
+     final String pictureUrl = finalPictureUrl;
+     final String finalGender = profile.getGender();
+     final LocalDate finalDob = profile.getDateOfBirth();
+
+     return Mono.fromFuture(() -> userDynamoDbRepository.findByGoogleIdAsync(googleId))
+             .flatMap(found -> found.map(existingUser -> {
                  // User exists - update if necessary
                  log.info("Existing user found (ID: {}). Updating details if changed.", existingUser.getUserId());
                  boolean updated = false;
@@ -104,9 +176,9 @@ public class GoogleAuthServiceImpl implements GoogleAuthService {
 
                  if (updated) {
                      log.debug("Saving updated user details for Google ID: {}", googleId);
-                     userDynamoDbRepository.save(existingUser);
+                     return save(existingUser);
                  }
-                 return existingUser;
+                 return Mono.just(existingUser);
              })
              .orElseGet(() -> {
                  // User doesn't exist - create a new one
@@ -121,22 +193,73 @@ public class GoogleAuthServiceImpl implements GoogleAuthService {
                  newUser.setDateOfBirthAsLocalDate(finalDob);
                  newUser.setEnabled(true);
                  log.debug("Saving new user with Google ID: {}", googleId);
-                 userDynamoDbRepository.save(newUser);
-                 return newUser;
+                 return save(newUser);
+             }));
+ }
+
+ // Saves without blocking and drops the cached principal, so the next request reloads the saved user
+ private Mono<User> save(User user) {
+     return Mono.fromFuture(() -> userDynamoDbRepository.saveAsync(user))
+             .then(Mono.fromRunnable(() -> userPrincipalCache.invalidate(user.getUserId())))
+             .thenReturn(user);
+ }
+
+ // User of an earlier reconciliation: from the principal cache (dropped whenever the user is saved),
+ // else a consistent read without blocking, since the result is cached. Empty if the user no longer exists.
+ private Mono<User> loadReconciledUser(ReconciledProfile reconciled) {
+     UserPrincipal cached = userPrincipalCache.getIfPresent(reconciled.userId);
+     if (cached != null) {
+         return Mono.just(cached.getUser());
+     }
+     return Mono.fromFuture(() -> userDynamoDbRepository.findByIdAsync(reconciled.userId, true))
+             .flatMap(found -> {
+                 if (found.isEmpty()) {
+                     reconciledProfiles.invalidate(reconciled.profile.getGoogleId());
+                     return Mono.<User>empty();
+                 }
+                 userPrincipalCache.put(new UserPrincipal(found.get()));
+                 return Mono.just(found.get());
              });
+ }
 
-     log.info("Returning processed user with internal ID: {}, Email: {}", user.getUserId(), user.getEmail());
-     return user;
+ static GoogleProfile toProfile(PeopleApiResponse person) {
+     return new GoogleProfile(
+             extractGoogleId(person),
+             extractPrimaryField(person.getEmailAddresses(), e -> e.value),
+             extractPrimaryField(person.getNames(), n -> n.displayName),
+             extractPrimaryPhotoUrl(person), // Use specific logic for default photo
+             extractPrimaryField(person.getGenders(), g -> g.formattedValue != null ? g.formattedValue : g.value), // Prefer formatted value
+             extractBirthday(person));
+ }
+
+ // Access tokens are credentials: only their SHA-256 is kept in memory
+ private static String hashToken(String accessToken) {
+     try {
+         byte[] digest = MessageDigest.getInstance("SHA-256").digest(accessToken.getBytes(StandardCharsets.UTF_8));
+         return HexFormat.of().formatHex(digest);
+     } catch (NoSuchAlgorithmException e) {
+         throw new IllegalStateException("SHA-256 not available", e);
+     }
+ }
+
+ // Profile as last written to (or confirmed against) the users table, and whose user it is
+ private static final class ReconciledProfile {
+     final GoogleProfile profile;
+     final String userId;
+
+     ReconciledProfile(GoogleProfile profile, String userId) {
+         this.profile = profile;
+         this.userId = userId;
+     }
  }
  
 //--- Helper to call People API (request multiple fields) ---
- private PeopleApiResponse getPersonFromGoogle(String accessToken) {
+ private Mono<PeopleApiResponse> getPersonFromGoogle(String accessToken) {
      // Request multiple fields in one call
      String personFields = "names,emailAddresses,photos,birthdays,genders,metadata"; // Added metadata for primary/source checks
      String peopleApiUrl = "https://people.googleapis.com/v1/people/me?personFields=" + personFields;
      log.debug("Calling Google People API endpoint: {}", peopleApiUrl);
-     try {
-         return webClient.get()
+     return webClient.get()
                  .uri(peopleApiUrl)
                  .header("Authorization", "Bearer " + accessToken)
                  .retrieve()
@@ -148,81 +271,83 @@ public class GoogleAuthServiceImpl implements GoogleAuthService {
                                    if(clientResponse.statusCode() == HttpStatus.FORBIDDEN) {
                                         return Mono.error(new GeneralSecurityException("Permission denied by user or insufficient API scopes for People API. Status: 403"));
                                    }
-                                   return Mono.error(new IOException("Error accessing Google People API. Status: " + clientResponse.statusCode()));
+                                   return Mono.error(new GoogleApiException("Error accessing Google People API. Status: " + clientResponse.statusCode(),
+                                           clientResponse.statusCode().value()));
                                }))
                  .bodyToMono(PeopleApiResponse.class)
-                 .block(); // Synchronous call
-     } catch (Exception e) {
-          log.error("Failed to call or parse Google People API response", e);
-          // Throw a meaningful exception
-          throw new RuntimeException("Could not retrieve required person data from Google: " + e.getMessage(), e);
-     }
+                 // Non-blocking: completes on the WebClient's event loop.
+                 // Rejected immediately when too many calls are in flight or the circuit is open.
+                 .transformDeferred(BulkheadOperator.of(peopleApiBulkhead))
+                 .transformDeferred(CircuitBreakerOperator.of(peopleApiCircuitBreaker))
+                 .onErrorMap(e -> !(e instanceof CallNotPermittedException || e instanceof BulkheadFullException), e -> {
+                      log.error("Failed to call or parse Google People API response", e);
+                      // Throw a meaningful exception
+                      return new RuntimeException("Could not retrieve required person data from Google: " + e.getMessage(), e);
+                 });
  }
 
  // --- Helper methods to safely extract primary/best values ---
 
- private String extractGoogleId(PeopleApiResponse person) {
+ private static String extractGoogleId(PeopleApiResponse person) {
       // Google ID ('sub') is often in metadata.source.id where source.type == 'ACCOUNT'
       // Check primary email first, then primary name
-      if (person.getEmailAddresses() != null) {
-         for (EmailAddressResponse email : person.getEmailAddresses()) {
-              if (email.getMetadata() != null && Boolean.TRUE.equals(email.getMetadata().getPrimary())
-                      && email.getMetadata().getSource() != null && "ACCOUNT".equals(email.getMetadata().getSource().getType())) {
-                  return email.getMetadata().getSource().getId();
-              }
-          }
+      String googleId = primaryAccountId(person.getEmailAddresses());
+      if (googleId == null) {
+          // Fallback to checking primary name metadata if not found in email
+          googleId = primaryAccountId(person.getNames());
       }
-      // Fallback to checking primary name metadata if not found in email
-      if (person.getNames() != null) {
-         for (NameResponse name : person.getNames()) {
-              if (name.getMetadata() != null && Boolean.TRUE.equals(name.getMetadata().getPrimary())
-                      && name.getMetadata().getSource() != null && "ACCOUNT".equals(name.getMetadata().getSource().getType())) {
-                  return name.getMetadata().getSource().getId();
-              }
+      if (googleId == null) {
+          log.error("Could not extract primary ACCOUNT source ID (googleId/sub) from People API response.");
+      }
+      return googleId; // Or throw?
+  }
+
+ private static String primaryAccountId(List<? extends HasPersonMetadata> list) {
+      if (list == null) return null;
+      for (HasPersonMetadata item : list) {
+          if (item != null && item.isPrimary() && item.hasSourceType("ACCOUNT")) {
+              return item.getMetadata().getSource().getId();
           }
       }
-      log.error("Could not extract primary ACCOUNT source ID (googleId/sub) from People API response.");
-      return null; // Or throw?
+      return null;
   }
 
- // Generic helper to find primary field value from a list
- private <T> String extractPrimaryField(List<T> list, java.util.function.Function<T, String> valueExtractor) {
+ // Generic helper to find primary field value from a list, falling back to the first item.
+ // Called for every field on every login, so a plain loop over the typed metadata.
+ private static <T extends HasPersonMetadata> String extractPrimaryField(List<T> list, Function<T, String> valueExtractor) {
       if (list == null || list.isEmpty()) return null;
-      return list.stream()
-          // Assuming list items have a getMetadata() method returning PersonMetadata
-          .filter(item -> {
-              try {
-                  PersonMetadata meta = (PersonMetadata) item.getClass().getMethod("getMetadata").invoke(item);
-                  return meta != null && Boolean.TRUE.equals(meta.getPrimary());
-              } catch (Exception e) { return false; } // Handle reflection exceptions/missing method
-          })
-          .map(valueExtractor)
-          .findFirst()
-           // Fallback to first item if no primary is marked (or reflection failed)
-          .orElseGet(() -> {
-              try { return valueExtractor.apply(list.get(0)); }
-              catch (Exception e) { return null; }
-          });
+      for (T item : list) {
+          if (item != null && item.isPrimary()) {
+              return valueExtractor.apply(item);
+          }
+      }
+      T first = list.get(0);
+      return first != null ? valueExtractor.apply(first) : null;
   }
 
-  private String extractPrimaryPhotoUrl(PeopleApiResponse person) {
-      if (person.getPhotos() == null || person.getPhotos().isEmpty()) return null;
-      return person.getPhotos().stream()
-          .filter(p -> p.getMetadata() != null && Boolean.TRUE.equals(p.getIsDefault())) // Use getIsDefault()
-          .map(p -> p.getUrl())
-          .findFirst()
-          .orElse(person.getPhotos().get(0).getUrl()); // Fallback to first photo
+  private static String extractPrimaryPhotoUrl(PeopleApiResponse person) {
+      List<PhotoResponse> photos = person.getPhotos();
+      if (photos == null || photos.isEmpty()) return null;
+      for (PhotoResponse photo : photos) {
+          if (photo != null && photo.getMetadata() != null && Boolean.TRUE.equals(photo.getIsDefault())) {
+              return photo.getUrl();
+          }
+      }
+      return photos.get(0) != null ? photos.get(0).getUrl() : null; // Fallback to first photo
   }
 
- 
-   private LocalDate extractBirthday(PeopleApiResponse person) {
-      if (person.getBirthdays() == null || person.getBirthdays().isEmpty()) return null;
-       return person.getBirthdays().stream()
-                 .filter(b -> b.getDate() != null && b.getMetadata() != null && b.getMetadata().getSource() != null && "PROFILE".equals(b.getMetadata().getSource().getType())) // Look for PROFILE source
-                 .map(b -> b.getDate().toLocalDate())
-                 .filter(java.util.Objects::nonNull) // Filter out nulls from failed conversions
-                 .findFirst()
-                 .orElseGet(() -> person.getBirthdays().get(0).getDate() != null ? person.getBirthdays().get(0).getDate().toLocalDate() : null); // Fallback
+   private static LocalDate extractBirthday(PeopleApiResponse person) {
+      List<BirthdayResponse> birthdays = person.getBirthdays();
+      if (birthdays == null || birthdays.isEmpty()) return null;
+      for (BirthdayResponse birthday : birthdays) {
+          // Look for PROFILE source
+          if (birthday != null && birthday.getDate() != null && birthday.hasSourceType("PROFILE")) {
+              LocalDate date = birthday.getDate().toLocalDate();
+              if (date != null) return date; // Skip failed conversions
+          }
+      }
+      BirthdayResponse first = birthdays.get(0); // Fallback
+      return first != null && first.getDate() != null ? first.getDate().toLocalDate() : null;
   }
 
 }
\ No newline at end of file
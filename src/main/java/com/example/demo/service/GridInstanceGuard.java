@@ -0,0 +1,68 @@
+package com.example.demo.service;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Detects more than one instance running the grid engine.
+ *
+ * {@link GridProximityEngine} only sees the records consumed by its own instance, so
+ * with several instances sharing the Kafka group, users whose updates land on
+ * partitions owned by different instances are never matched. Each instance
+ * heartbeats into a Redis ZSET; when more than one is alive this logs a warning
+ * and the proximity.grid.instances gauge rises above 1. Run the grid engine on a
+ * single instance, or use app.proximity.engine=redis when scaling out.
+ */
+@Component
+@ConditionalOnProperty(name = "app.proximity.engine", havingValue = "grid")
+public class GridInstanceGuard {
+
+    private static final Logger log = LoggerFactory.getLogger(GridInstanceGuard.class);
+
+    static final String INSTANCES_KEY = "proximity:grid:instances";
+
+    private final StringRedisTemplate redisTemplate;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final long heartbeatMs;
+    private final AtomicLong liveInstances = new AtomicLong(1);
+
+    public GridInstanceGuard(StringRedisTemplate redisTemplate, MeterRegistry meterRegistry,
+                             @Value("${app.proximity.grid.heartbeat-ms:10000}") long heartbeatMs) {
+        this.redisTemplate = redisTemplate;
+        this.heartbeatMs = heartbeatMs;
+        Gauge.builder("proximity.grid.instances", liveInstances, AtomicLong::get)
+                .description("Instances running the in-memory grid engine; above 1 means pairs are missed")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.proximity.grid.heartbeat-ms:10000}")
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        try {
+            redisTemplate.opsForZSet().add(INSTANCES_KEY, instanceId, now);
+            // An instance that missed three heartbeats is gone
+            redisTemplate.opsForZSet().removeRangeByScore(INSTANCES_KEY, Double.NEGATIVE_INFINITY, now - 3 * heartbeatMs);
+            Long count = redisTemplate.opsForZSet().zCard(INSTANCES_KEY);
+            long instances = count != null ? count : 1;
+            long previous = liveInstances.getAndSet(instances);
+            if (instances > 1 && instances != previous) {
+                log.warn("{} instances run app.proximity.engine=grid; each only sees its own Kafka partitions, "
+                        + "so users on different instances are never matched. Use a single instance or the redis engine.",
+                        instances);
+            }
+        } catch (RuntimeException e) {
+            log.debug("Grid engine heartbeat failed", e);
+        }
+    }
+}
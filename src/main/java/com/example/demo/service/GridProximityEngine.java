@@ -0,0 +1,295 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * In-process engine: keeps the current 5-minute bucket's points in memory, fed by
+ * the ingest path, and finds pairs with a single sweep over a spatial hash grid.
+ * Redis is not read during a sweep.
+ *
+ * Grid cells are the 5-character geohash cells used everywhere else (12 latitude
+ * bits, 13 longitude bits), encoded as a long instead of a string. A cell is about
+ * 4.9 km tall and narrower away from the equator, so each cell is checked against as
+ * many rings of neighbours as the search radius needs, not just the adjacent ones.
+ *
+ * With app.proximity.parallelism above 1 the sweep is sharded by cell on a dedicated
+ * ForkJoinPool; each worker fills its own result map and the maps are merged at the end.
+ *
+ * Single instance only: the grid holds just the records this instance consumed, so
+ * with several instances in the consumer group, users on partitions owned by different
+ * instances are never paired. {@link GridInstanceGuard} warns when that happens.
+ */
+@Component
+@ConditionalOnProperty(name = "app.proximity.engine", havingValue = "grid")
+public class GridProximityEngine implements ProximityEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(GridProximityEngine.class);
+
+    private static final long BUCKET_MILLIS = 5 * 60 * 1000L;
+    private static final int LAT_CELLS = 1 << 12;
+    private static final int LON_CELLS = 1 << 13;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final double EARTH_RADIUS_KM = 6371; // As in ProximityEngine.distanceKm
+    private static final double CELL_HEIGHT_DEGREES = 180.0 / LAT_CELLS;
+    private static final double CELL_WIDTH_DEGREES = 360.0 / LON_CELLS;
+
+    // --- Points of the current bucket, guarded by "this" ---
+    private long currentBucket = Long.MIN_VALUE;
+    private final Map<String, Integer> memberIndex = new HashMap<>();
+    private final List<String> members = new ArrayList<>();
+    private final Map<String, Integer> userIndex = new HashMap<>();
+    private int[] memberUser = new int[INITIAL_CAPACITY];
+    private double[] latitudes = new double[INITIAL_CAPACITY];
+    private double[] longitudes = new double[INITIAL_CAPACITY];
+    private int size;
+
+    // Null when the sweep runs sequentially
+    private final ForkJoinPool sweepPool;
+
+    public GridProximityEngine(@Value("${app.proximity.parallelism:1}") int parallelism) {
+        this.sweepPool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        log.info("Grid proximity engine sweeping with parallelism {}", Math.max(parallelism, 1));
+    }
+
+    @Override
+    public synchronized void onLocation(String locationMember, double latitude, double longitude, long epochMillis) {
+        long bucket = epochMillis / BUCKET_MILLIS;
+        if (bucket < currentBucket) {
+            return; // Late update for a bucket we already moved past
+        }
+        if (bucket > currentBucket) {
+            log.debug("Proximity grid moving to bucket {} (dropping {} points)", bucket, size);
+            reset(bucket);
+        }
+
+        Integer existing = memberIndex.get(locationMember);
+        if (existing != null) {
+            // Same member again: GEOADD overwrites the position, so do we
+            latitudes[existing] = latitude;
+            longitudes[existing] = longitude;
+            return;
+        }
+
+        if (size == latitudes.length) {
+            int capacity = size * 2;
+            memberUser = Arrays.copyOf(memberUser, capacity);
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+        }
+        String userId = locationMember.split(":")[0];
+        Integer user = userIndex.computeIfAbsent(userId, k -> userIndex.size());
+
+        memberIndex.put(locationMember, size);
+        members.add(locationMember);
+        memberUser[size] = user;
+        latitudes[size] = latitude;
+        longitudes[size] = longitude;
+        size++;
+    }
+
+    @Override
+    public Map<String, Set<String>> findNearbyMembers(double searchRadiusKm) {
+        Snapshot snapshot = snapshot();
+        int n = snapshot.size;
+        Map<String, Set<String>> nearbyMembers = new HashMap<>();
+        if (n < 2) {
+            return nearbyMembers;
+        }
+
+        // Sort points by cell: pack (cell, index) into one long so a primitive sort does it.
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++) {
+            packed[i] = (cellOf(snapshot.latitudes[i], snapshot.longitudes[i]) << 32) | i;
+        }
+        Arrays.sort(packed);
+
+        int[] order = new int[n];
+        long[] cellKeys = new long[n];
+        int[] cellStart = new int[n + 1];
+        int cellCount = 0;
+        for (int i = 0; i < n; i++) {
+            long cell = packed[i] >>> 32;
+            order[i] = (int) packed[i];
+            if (cellCount == 0 || cellKeys[cellCount - 1] != cell) {
+                cellKeys[cellCount] = cell;
+                cellStart[cellCount] = i;
+                cellCount++;
+            }
+        }
+        cellStart[cellCount] = n;
+        final int cells = cellCount;
+
+        if (sweepPool == null) {
+            for (int c = 0; c < cells; c++) {
+                sweepCell(snapshot, order, cellKeys, cellStart, cells, c, searchRadiusKm, nearbyMembers);
+            }
+            return nearbyMembers;
+        }
+
+        // One shard per cell; collect() gives every worker its own map, so no locks are shared
+        try {
+            return sweepPool.submit(() -> IntStream.range(0, cells).parallel()
+                    .collect(HashMap<String, Set<String>>::new,
+                            (shard, c) -> sweepCell(snapshot, order, cellKeys, cellStart, cells, c, searchRadiusKm, shard),
+                            GridProximityEngine::merge))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during parallel proximity sweep", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Parallel proximity sweep failed", e.getCause());
+        }
+    }
+
+    private static void merge(Map<String, Set<String>> into, Map<String, Set<String>> from) {
+        for (Map.Entry<String, Set<String>> entry : from.entrySet()) {
+            Set<String> existing = into.putIfAbsent(entry.getKey(), entry.getValue());
+            if (existing != null) {
+                existing.addAll(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Checks one cell against itself and against the neighbouring cells with a larger
+     * key, so every unordered pair of cells is visited exactly once.
+     */
+    private void sweepCell(Snapshot snapshot, int[] order, long[] cellKeys, int[] cellStart, int cellCount,
+                           int c, double searchRadiusKm, Map<String, Set<String>> out) {
+        long cell = cellKeys[c];
+        int from = cellStart[c];
+        int to = cellStart[c + 1];
+
+        for (int a = from; a < to; a++) {
+            for (int b = a + 1; b < to; b++) {
+                checkPair(snapshot, order[a], order[b], searchRadiusKm, out);
+            }
+        }
+
+        int latIdx = (int) (cell >>> 13);
+        int lonIdx = (int) (cell & (LON_CELLS - 1));
+        int latRing = latRing(searchRadiusKm);
+        int lonRing = lonRing(latIdx, latRing, searchRadiusKm);
+        // Past half the globe the ring would wrap onto itself: visit each column once
+        int lonSpan = Math.min(2 * lonRing + 1, LON_CELLS);
+        for (int dLat = -latRing; dLat <= latRing; dLat++) {
+            int nLat = latIdx + dLat;
+            if (nLat < 0 || nLat >= LAT_CELLS) continue;
+            for (int dLon = -lonRing; dLon < lonSpan - lonRing; dLon++) {
+                if (dLat == 0 && dLon == 0) continue;
+                int nLon = Math.floorMod(lonIdx + dLon, LON_CELLS); // wrap at the antimeridian
+                long neighbour = ((long) nLat << 13) | nLon;
+                if (neighbour <= cell) continue;
+
+                int k = Arrays.binarySearch(cellKeys, 0, cellCount, neighbour);
+                if (k < 0) continue;
+                for (int a = from; a < to; a++) {
+                    for (int b = cellStart[k]; b < cellStart[k + 1]; b++) {
+                        checkPair(snapshot, order[a], order[b], searchRadiusKm, out);
+                    }
+                }
+            }
+        }
+    }
+
+    // Rows a point can be from another within the radius: |dLat| <= d / R
+    static int latRing(double searchRadiusKm) {
+        return (int) Math.ceil(Math.toDegrees(searchRadiusKm / EARTH_RADIUS_KM) / CELL_HEIGHT_DEGREES);
+    }
+
+    /**
+     * Columns a point in row latIdx can be from another within the radius. The haversine
+     * gives sin(dLon / 2) <= sin(d / 2R) / cos(lat), taken at the highest latitude the
+     * rows within latRing reach, where the cells are narrowest.
+     */
+    static int lonRing(int latIdx, int latRing, double searchRadiusKm) {
+        double south = Math.max(latIdx - latRing, 0) * CELL_HEIGHT_DEGREES - 90.0;
+        double north = Math.min(latIdx + latRing + 1, LAT_CELLS) * CELL_HEIGHT_DEGREES - 90.0;
+        double maxLatitude = Math.max(Math.abs(south), Math.abs(north));
+        double sinHalfDLon = Math.sin(Math.min(searchRadiusKm / (2 * EARTH_RADIUS_KM), Math.PI / 2))
+                / Math.cos(Math.toRadians(maxLatitude));
+        if (!(sinHalfDLon < 1)) {
+            return LON_CELLS / 2; // Every column (also covers the poles, where cos is 0)
+        }
+        double dLonDegrees = Math.toDegrees(2 * Math.asin(sinHalfDLon));
+        return (int) Math.min(Math.ceil(dLonDegrees / CELL_WIDTH_DEGREES), LON_CELLS / 2);
+    }
+
+    private void checkPair(Snapshot snapshot, int i, int j, double searchRadiusKm, Map<String, Set<String>> out) {
+        if (snapshot.memberUser[i] == snapshot.memberUser[j]) {
+            return;
+        }
+        if (ProximityEngine.distanceKm(snapshot.latitudes[i], snapshot.longitudes[i],
+                snapshot.latitudes[j], snapshot.longitudes[j]) <= searchRadiusKm) {
+            String first = snapshot.members[i];
+            String second = snapshot.members[j];
+            out.computeIfAbsent(first, k -> new HashSet<>()).add(second);
+            out.computeIfAbsent(second, k -> new HashSet<>()).add(first);
+        }
+    }
+
+    static long cellOf(double latitude, double longitude) {
+        int latIdx = (int) Math.floor((latitude + 90.0) / 180.0 * LAT_CELLS);
+        int lonIdx = (int) Math.floor((longitude + 180.0) / 360.0 * LON_CELLS);
+        latIdx = Math.min(Math.max(latIdx, 0), LAT_CELLS - 1);
+        lonIdx = Math.floorMod(lonIdx, LON_CELLS);
+        return ((long) latIdx << 13) | lonIdx;
+    }
+
+    private synchronized Snapshot snapshot() {
+        return new Snapshot(size,
+                members.toArray(new String[0]),
+                Arrays.copyOf(memberUser, size),
+                Arrays.copyOf(latitudes, size),
+                Arrays.copyOf(longitudes, size));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (sweepPool != null) {
+            sweepPool.shutdown();
+        }
+    }
+
+    private void reset(long bucket) {
+        currentBucket = bucket;
+        memberIndex.clear();
+        members.clear();
+        userIndex.clear();
+        size = 0;
+    }
+
+    // Immutable copy of the grid taken under the lock, so sweeps never block ingest
+    private static final class Snapshot {
+        final int size;
+        final String[] members;
+        final int[] memberUser;
+        final double[] latitudes;
+        final double[] longitudes;
+
+        Snapshot(int size, String[] members, int[] memberUser, double[] latitudes, double[] longitudes) {
+            this.size = size;
+            this.members = members;
+            this.memberUser = memberUser;
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+        }
+    }
+}
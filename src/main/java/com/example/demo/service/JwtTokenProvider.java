@@ -1,6 +1,7 @@
 package com.example.demo.service;
 
 
+import java.time.Duration;
 import java.util.Date;
 
 import javax.crypto.SecretKey;
@@ -11,10 +12,18 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import com.example.demo.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
 // Import specific exceptions
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.UnsupportedJwtException;
@@ -27,14 +36,61 @@ public class JwtTokenProvider {
 
     private static final Logger log = LoggerFactory.getLogger(JwtTokenProvider.class);
 
+    // Extra claims carried so requests can be authenticated without loading the user
+    public static final String EMAIL_CLAIM = "email";
+    public static final String ENABLED_CLAIM = "enabled";
+
     private final SecretKey key;
     private final long validityInMilliseconds;
+    // Immutable and thread-safe: built once instead of per call
+    private final JwtParser parser;
+
+    // Claims of recently verified tokens, keyed by the raw token. Lookups hash the string,
+    // but a hit still needs the full token to be equal, so a collision can never return
+    // another token's claims. Entries expire at the token's exp at the latest.
+    private final Cache<String, Claims> verifiedTokens;
 
     public JwtTokenProvider(@Value("${app.jwt.secret}") String secret,
-                            @Value("${app.jwt.expiration-ms}") long validityInMilliseconds) {
+                            @Value("${app.jwt.expiration-ms}") long validityInMilliseconds,
+                            @Value("${app.jwt.verified-cache.max-size:10000}") long verifiedCacheSize,
+                            @Value("${app.jwt.verified-cache.ttl-seconds:300}") long verifiedCacheTtlSeconds,
+                            MeterRegistry meterRegistry) {
         byte[] keyBytes = Decoders.BASE64.decode(secret); // Assuming Base64 encoded secret
         this.key = Keys.hmacShaKeyFor(keyBytes);
         this.validityInMilliseconds = validityInMilliseconds;
+        this.parser = Jwts.parser().verifyWith(key).build();
+
+        Duration maxTtl = Duration.ofSeconds(verifiedCacheTtlSeconds);
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String token, Claims claims, long currentTime) {
+                        return remainingLifetime(claims, maxTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String token, Claims claims, long currentTime, long currentDuration) {
+                        return remainingLifetime(claims, maxTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String token, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "verifiedTokens");
+    }
+
+    private static Duration remainingLifetime(Claims claims, Duration maxTtl) {
+        Date expiration = claims.getExpiration();
+        if (expiration == null) {
+            return maxTtl;
+        }
+        Duration remaining = Duration.ofMillis(expiration.getTime() - System.currentTimeMillis());
+        return remaining.isNegative() ? Duration.ZERO : (remaining.compareTo(maxTtl) < 0 ? remaining : maxTtl);
     }
 
     // --- Existing generateToken method ---
@@ -49,6 +105,8 @@ public class JwtTokenProvider {
         log.debug("Generating JWT for subject: {}, Expiration: {}", subject, expiryDate);
         return Jwts.builder()
                 .subject(subject)
+                .claim(EMAIL_CLAIM, user.getEmail())
+                .claim(ENABLED_CLAIM, user.isEnabled())
                 .issuedAt(now)
                 .expiration(expiryDate)
                 .signWith(key)
@@ -57,32 +115,95 @@ public class JwtTokenProvider {
     
     // --- NEW: Method to get user identifier (subject) from token ---
     public String getUserIdFromJWT(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(key) // Verify using the secret key
-                .build()
-                .parseSignedClaims(token) // Parse the token
-                .getPayload(); // Get the payload (claims)
+        return getClaimsFromJWT(token).getSubject(); // Return the 'sub' claim
+    }
 
-        return claims.getSubject(); // Return the 'sub' claim
+    // Verified claims of the token (subject, email, enabled, ...)
+    public Claims getClaimsFromJWT(String token) {
+        return parser.parseSignedClaims(token) // Parse and verify the token
+                .getPayload(); // Get the payload (claims)
     }
 
     // --- NEW: Method to validate the token ---
     public boolean validateToken(String authToken) {
+        return verifyToken(authToken).isValid();
+    }
+
+    /**
+     * Verifies the signature and expiry once and returns the claims, or why the
+     * token was rejected. Use this instead of validateToken followed by
+     * getUserIdFromJWT, which verifies the token twice. Tokens verified recently are
+     * answered from the cache without decoding or checking the signature again;
+     * rejections are not cached.
+     */
+    public TokenVerification verifyToken(String authToken) {
+        if (authToken != null) {
+            Claims cached = verifiedTokens.getIfPresent(authToken);
+            // The expiry already ends at exp; the check guards against the entry being read in its last instant
+            if (cached != null && (cached.getExpiration() == null || cached.getExpiration().getTime() > System.currentTimeMillis())) {
+                return TokenVerification.valid(cached);
+            }
+        }
         try {
-            Jwts.parser().verifyWith(key).build().parseSignedClaims(authToken);
+            Claims claims = getClaimsFromJWT(authToken);
             log.debug("JWT Token is valid");
-            return true;
+            verifiedTokens.put(authToken, claims);
+            return TokenVerification.valid(claims);
         } catch (SignatureException ex) {
             log.error("Invalid JWT signature: {}", ex.getMessage());
+            return TokenVerification.failed(TokenFailure.INVALID_SIGNATURE);
         } catch (MalformedJwtException ex) {
             log.error("Invalid JWT token: {}", ex.getMessage());
+            return TokenVerification.failed(TokenFailure.MALFORMED);
         } catch (ExpiredJwtException ex) {
             log.error("Expired JWT token: {}", ex.getMessage());
+            return TokenVerification.failed(TokenFailure.EXPIRED);
         } catch (UnsupportedJwtException ex) {
             log.error("Unsupported JWT token: {}", ex.getMessage());
+            return TokenVerification.failed(TokenFailure.UNSUPPORTED);
         } catch (IllegalArgumentException ex) {
             log.error("JWT claims string is empty: {}", ex.getMessage());
+            return TokenVerification.failed(TokenFailure.EMPTY);
+        } catch (JwtException ex) {
+            log.error("Rejected JWT token: {}", ex.getMessage());
+            return TokenVerification.failed(TokenFailure.INVALID);
+        }
+    }
+
+    public enum TokenFailure {
+        INVALID_SIGNATURE, MALFORMED, EXPIRED, UNSUPPORTED, EMPTY, INVALID
+    }
+
+    // Outcome of verifyToken: the verified claims, or the reason the token was rejected
+    public static final class TokenVerification {
+        private final Claims claims;
+        private final TokenFailure failure;
+
+        private TokenVerification(Claims claims, TokenFailure failure) {
+            this.claims = claims;
+            this.failure = failure;
+        }
+
+        static TokenVerification valid(Claims claims) {
+            return new TokenVerification(claims, null);
+        }
+
+        static TokenVerification failed(TokenFailure failure) {
+            return new TokenVerification(null, failure);
+        }
+
+        public boolean isValid() {
+            return claims != null;
+        }
+
+        // Null when the token was rejected
+        public Claims getClaims() {
+            return claims;
+        }
+
+        // Null when the token is valid
+        public TokenFailure getFailure() {
+            return failure;
         }
-        return false;
     }
 }
\ No newline at end of file
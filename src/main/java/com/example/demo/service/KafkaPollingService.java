@@ -2,196 +2,270 @@ package com.example.demo.service;
 
 
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.time.Duration;
-import java.time.LocalDateTime;
+import java.time.Instant;
+import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Collections;
-import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Properties;
+import java.util.concurrent.ThreadFactory;
 
-import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.data.geo.Point;
-import org.springframework.data.redis.core.GeoOperations;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.kafka.core.ConsumerFactory;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import com.example.demo.dto.LocationMessage;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.davidmoten.geo.GeoHash;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 
+/**
+ * Consumes location updates and writes them to Redis.
+ *
+ * Runs app.kafka.location-consumer.concurrency consumers in the same group, each on
+ * its own thread with its own partitions, queue and writer (see
+ * {@link LocationConsumerWorker}). All of them share {@link #bulkUpdateRedis}.
+ * The nearby computation runs separately (see {@link ProximitySweepService}).
+ */
 @Service
 public class KafkaPollingService {
 
-    private final KafkaConsumer<String, String> consumer;
+    private static final Logger log = LoggerFactory.getLogger(KafkaPollingService.class);
+
+    private static final String TOPIC = "user-locations";
+
+    private static final ZoneId IST_ZONE = ZoneId.of("Asia/Kolkata");
+
+    private static final DateTimeFormatter BUCKET_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+
+    // Location keys (and their index entries) expire this long after the start of their IST bucket
+    private static final Duration BUCKET_RETENTION = Duration.ofHours(1);
+
+    // IST has a fixed +05:30 offset (no DST), so buckets are plain arithmetic on epoch millis
+    private static final long IST_OFFSET_MILLIS = Duration.ofMinutes(5 * 60 + 30).toMillis();
+    private static final long BUCKET_MILLIS = Duration.ofMinutes(5).toMillis();
+    private static final long MINUTE_MILLIS = Duration.ofMinutes(1).toMillis();
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    // "HH:mm" label of each 5-minute bucket of the day, by bucket number
+    private static final String[] BUCKET_LABELS = new String[MINUTES_PER_DAY / 5];
+    static {
+        for (int i = 0; i < BUCKET_LABELS.length; i++) {
+            BUCKET_LABELS[i] = BUCKET_FORMATTER.format(LocalTime.ofSecondOfDay(i * 5 * 60L));
+        }
+    }
     
     private final StringRedisTemplate redisTemplate;
-    
-    private final UserLocationService userLocationService ;
 
-    public KafkaPollingService(ConsumerFactory<String, String> consumerFactory , StringRedisTemplate redisTemplate , UserLocationService userLocationService) {
-        this.consumer = (KafkaConsumer<String, String>) consumerFactory.createConsumer("my-group", "");
+    private final LocationBucketIndex locationBucketIndex;
+
+    private final ProximityEngine proximityEngine;
+
+    private final List<LocationConsumerWorker> workers = new ArrayList<>();
+
+    public KafkaPollingService(ConsumerFactory<String, String> consumerFactory , StringRedisTemplate redisTemplate ,
+                               LocationBucketIndex locationBucketIndex , ProximityEngine proximityEngine , MeterRegistry meterRegistry ,
+                               @Value("${app.kafka.location-consumer.concurrency:1}") int concurrency ,
+                               @Value("${app.kafka.location-consumer.queue-capacity:16}") int queueCapacity ,
+                               @Value("${app.kafka.location-consumer.poll-timeout-ms:1000}") long pollTimeoutMs ,
+                               Environment environment) {
         this.redisTemplate = redisTemplate;
-		this.userLocationService = userLocationService;       
+		this.locationBucketIndex = locationBucketIndex;
+		this.proximityEngine = proximityEngine;
+
+		// Values are read as raw bytes and decoded per record, so JSON and binary records can share the topic
+		Properties overrides = new Properties();
+		overrides.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+		// Workers commit offsets themselves once records are in Redis; auto-commit would run ahead of the writes
+		overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+
+		// spring.threads.virtual.enabled on Java 21: Redis writers run on virtual threads like the request threads
+		ThreadFactory writerThreadFactory = Threading.VIRTUAL.isActive(environment)
+		        ? new VirtualThreadTaskExecutor().getVirtualThreadFactory()
+		        : Thread::new;
+
+		for (int i = 0; i < Math.max(concurrency, 1); i++) {
+		    @SuppressWarnings("unchecked")
+		    KafkaConsumer<String, byte[]> consumer = (KafkaConsumer<String, byte[]>) (Consumer<String, ?>)
+		            consumerFactory.createConsumer("my-group", null, "-" + i, overrides);
+		    workers.add(new LocationConsumerWorker("location-consumer-" + i, TOPIC, consumer,
+		            this::parseMessage, this::bulkUpdateRedis, queueCapacity, Duration.ofMillis(pollTimeoutMs),
+		            writerThreadFactory, meterRegistry));
+		}
     }
 
     @PostConstruct
     public void init() {
-        consumer.subscribe(Collections.singletonList("user-locations"));      
+        log.info("Starting {} location consumers for topic '{}'", workers.size(), TOPIC);
+        workers.forEach(LocationConsumerWorker::start);
     }
 
-    @Scheduled(fixedRate = 10000) // Every 1 minute(60000)
-    public void pollMessages() {
-    	Map<String, Set<String>> map = userLocationService.findNearbyUsersForAll(5);
-        System.out.print(map);
-    	System.out.print("polling message .... ");
-        ConsumerRecords<String, String> records = consumer.poll(Duration.ofSeconds(5));
-        if (records.isEmpty()) return;
-        
-     // Temporary buffer to store messages before writing to Redis
-        List<LocationMessage> locationMessages = new ArrayList<>();
-
-        for (ConsumerRecord<String, String> record : records) {
-            LocationMessage locationMessage = parseMessage(record.value());
-            locationMessages.add(locationMessage);
+ // Parse Kafka message (JSON or binary) into LocationMessage object
+    LocationMessage parseMessage(byte[] payload) {
+        LocationMessage message = LocationMessageCodec.decode(payload);
+        // Failed writes are retried until they succeed, so anything that would fail every attempt is dropped here
+        if (Math.abs(message.getLatitude()) > 90 || Math.abs(message.getLongitude()) > 180) {
+            throw new IllegalArgumentException("Coordinates out of range: " + message);
         }
+        if (message.getUserEpochMillis() == null) {
+            // JSON records carry only the IST string: parse it once here, so a bad one skips just this record
+            ZonedDateTime userTime = ZonedDateTime.parse(message.getUserDateTime());
 
-        // Batch update Redis after processing all messages
-        bulkUpdateRedis(locationMessages);
-        
-        // Consumer acknowledgment: Happens when the consumer commits the offset (after processing).
-        // If a consumer fails before committing the offset, the message is reprocessed when it restarts.  
-        consumer.commitSync(); // Commit offsets only if messages were processed                                
-    }
-    
- // Parse Kafka message into LocationMessage object
-    private LocationMessage parseMessage(String jsonMessage) {
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.readValue(jsonMessage, LocationMessage.class);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to parse Kafka message: " + jsonMessage, e);
+            // Ensure user time is in IST (+05:30)
+            if (!userTime.getZone().equals(IST_ZONE)) {
+            	log.warn("Location update from user {} has a time outside IST (+05:30): {}",
+            	        message.getUserId(), message.getUserDateTime());
+            }
+            message.setUserEpochMillis(userTime.toInstant().toEpochMilli());
         }
+        return message;
     }
 
-    private void bulkUpdateRedis(List<LocationMessage> locationMessages) {
+    void bulkUpdateRedis(List<LocationMessage> locationMessages) {
         if (locationMessages.isEmpty()) return;
 
-        GeoOperations<String, String> geoOps = redisTemplate.opsForGeo();
+        // Group the whole poll by target key, so each key gets one multi-member GEOADD
+        Map<String, BucketWrite> writesByKey = new LinkedHashMap<>();
+        Map<String, Long> expiryByBucket = new HashMap<>();
+        List<LocationMessage> accepted = new ArrayList<>();
+        List<String> acceptedMembers = new ArrayList<>();
+        List<Long> acceptedTimes = new ArrayList<>();
+
+        // Your current time, once per batch
+        long nowMillis = System.currentTimeMillis();
 
         for (LocationMessage message : locationMessages) {
         	        	
-        	 // Parse user’s IST time
-            ZonedDateTime userTime = ZonedDateTime.parse(message.getUserDateTime());
-            
-            // Ensure user time is in IST (+05:30)
-            if (!userTime.getZone().equals(ZoneId.of("Asia/Kolkata"))) {
-            	System.out.print("Error: User time must be in IST (+05:30)");
-            }
+        	 // User's time as epoch millis (bucket, member and engine timestamp all derive from it)
+            long userMillis = message.getUserEpochMillis();
  
-            // Your current IST time
-            ZonedDateTime now = LocalDateTime.now().atZone(ZoneId.of("Asia/Kolkata"));                      
-
-            // Calculate difference in seconds (now - userTime)
-            long secondsDifference = ChronoUnit.SECONDS.between(userTime, now);
-            long oneHourInSeconds = 3600;
+            // Calculate difference (now - userTime)
+            long millisDifference = nowMillis - userMillis;
 
             // Check if user’s time is not older than 1 hour 
-            if (secondsDifference > oneHourInSeconds || !userTime.isBefore(now)) {                          
-            	System.out.print("time is wrong ");
+            if (millisDifference > BUCKET_RETENTION.toMillis() || millisDifference <= 0) {                          
+            	log.warn("Skipping location update from user {}: time {} is {} ms before now, outside (0, {}]",
+            	        message.getUserId(), Instant.ofEpochMilli(userMillis), millisDifference, BUCKET_RETENTION);
             	continue ;
             }
             
-            String timeBucket = get5MinTimeBucket(userTime.toString());
+            String timeBucket = get5MinTimeBucket(userMillis);
+            // Absolute expiry, the same for every write to the bucket, so re-applying it never extends it
+            long expiresAtEpochSeconds = expiryByBucket.computeIfAbsent(timeBucket,
+                    b -> bucketExpiryEpochSeconds(userMillis));
+            if (expiresAtEpochSeconds <= nowMillis / 1000) {
+                continue; // The bucket's key has already expired; writing would only resurrect it
+            }
         
             String geoPrefix = getGeohashPrefix(message.getLatitude(), message.getLongitude());
-            String redisKey = "user_locations:" + geoPrefix+":" + timeBucket;
+            String redisKey = LocationBucketIndex.locationKey(geoPrefix, timeBucket);
 
- 
-            String dateTimeStr = message.getUserDateTime();
-            
-            ZonedDateTime zonedDateTime = ZonedDateTime.parse(dateTimeStr);
-
-            // Extract hour and minute
-            int hour = zonedDateTime.getHour();
-            int minute = zonedDateTime.getMinute();
+            // Extract hour and minute (IST)
+            int minuteOfDay = istMinuteOfDay(userMillis);
+            int hour = minuteOfDay / 60;
+            int minute = minuteOfDay % 60;
            
             // 🔥 Unique ID for each location entry (Prevents Overwriting)
             String locationKey = message.getUserId() + ":" + hour+":"+minute;
-            
-         // ✅ Check before adding
-            boolean isNewKey = !redisTemplate.hasKey(redisKey);
-            
-           
-            Long result = geoOps.add(redisKey, new Point(message.getLongitude(), message.getLatitude()), locationKey);
-            System.out.println("GeoAdd result: " + result);    // If result == 1, a new entry was added.
 
-            if (isNewKey) {
-            	setRedisKeyWithExpiration(timeBucket , redisKey);              
-            }            
+            writesByKey.computeIfAbsent(redisKey, k -> new BucketWrite(geoPrefix, timeBucket, expiresAtEpochSeconds))
+                    .members.put(locationKey, new Point(message.getLongitude(), message.getLatitude()));
+
+            accepted.add(message);
+            acceptedMembers.add(locationKey);
+            acceptedTimes.add(userMillis);
         }
-    }
-    
-    private void setRedisKeyWithExpiration(String timeBucket, String redisKey) {
 
-        try {
-            // Parse the timeBucket to get a Date object
-            SimpleDateFormat sdf = new SimpleDateFormat("HH:mm");
-            Date bucketTime = sdf.parse(timeBucket);
-            
-            // Create calendar and set it to the bucket time
-            Calendar calendar = Calendar.getInstance();
-            calendar.setTime(bucketTime);
-            
-            // Set today's date components (year, month, day)
-            Calendar today = Calendar.getInstance();
-            calendar.set(Calendar.YEAR, today.get(Calendar.YEAR));
-            calendar.set(Calendar.MONTH, today.get(Calendar.MONTH));
-            calendar.set(Calendar.DAY_OF_MONTH, today.get(Calendar.DAY_OF_MONTH));
-            
-            // Add 1 hour to the bucket time to get expiration time
-            calendar.add(Calendar.HOUR_OF_DAY, 1);
-            
-            // Calculate TTL (time to live) in seconds
-            long expirationTimeSeconds = calendar.getTimeInMillis() / 1000;
-            long currentTimeSeconds = System.currentTimeMillis() / 1000;
-            long ttlSeconds = expirationTimeSeconds - currentTimeSeconds;
-            
-            // Ensure the TTL is positive
-            if (ttlSeconds <= 0) {
-                // Handle edge case: if time bucket was late in the day and now it's past expiration
-                ttlSeconds = 3600; // Default to 1 hour if calculation gives non-positive value
+        if (writesByKey.isEmpty()) return;
+
+        // One pipeline, one flush (RedisConfig sets flush-on-close): GEOADD + EXPIREAT + index
+        // entries per key, wrapped in MULTI/EXEC so the index never points at a location the
+        // sweep cannot see. The expiry is the bucket start plus one hour, so re-applying it
+        // always lands on the same time and no EXISTS check is needed.
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                ops.multi();
+                for (Map.Entry<String, BucketWrite> entry : writesByKey.entrySet()) {
+                    BucketWrite write = entry.getValue();
+                    ops.opsForGeo().add(entry.getKey(), write.members);
+                    ops.expireAt(entry.getKey(), Instant.ofEpochSecond(write.expiresAtEpochSeconds));
+                    locationBucketIndex.record(ops, write.geohash, write.timeBucket, write.expiresAtEpochSeconds);
+                }
+                ops.exec();
+                return null; // Results are collected by executePipelined
             }
-            
-            // Set the Redis key expiration
-            redisTemplate.expire(redisKey, Duration.ofSeconds(ttlSeconds));
-        } catch (ParseException e) {
-            // Handle parsing exception
-            throw new IllegalArgumentException("Invalid time bucket format: " + timeBucket, e);
+        });
+
+        for (int i = 0; i < accepted.size(); i++) {
+            LocationMessage message = accepted.get(i);
+            proximityEngine.onLocation(acceptedMembers.get(i), message.getLatitude(), message.getLongitude(),
+                    acceptedTimes.get(i));
+        }
+    }
+
+    // Pending writes for one user_locations:<geohash>:<bucket> key within a poll batch
+    private static final class BucketWrite {
+        final String geohash;
+        final String timeBucket;
+        final long expiresAtEpochSeconds;
+        final Map<String, Point> members = new LinkedHashMap<>();
+
+        BucketWrite(String geohash, String timeBucket, long expiresAtEpochSeconds) {
+            this.geohash = geohash;
+            this.timeBucket = timeBucket;
+            this.expiresAtEpochSeconds = expiresAtEpochSeconds;
         }
     }
+    
+    // Start of the user's 5-minute bucket in IST plus one hour, independent of the host's time zone
+    static long bucketExpiryEpochSeconds(long userEpochMillis) {
+        long bucketStartMillis = Math.floorDiv(userEpochMillis + IST_OFFSET_MILLIS, BUCKET_MILLIS) * BUCKET_MILLIS
+                - IST_OFFSET_MILLIS;
+        return (bucketStartMillis + BUCKET_RETENTION.toMillis()) / 1000;
+    }
+
+    // Minutes since IST midnight
+    static int istMinuteOfDay(long epochMillis) {
+        return (int) Math.floorMod(Math.floorDiv(epochMillis + IST_OFFSET_MILLIS, MINUTE_MILLIS), MINUTES_PER_DAY);
+    }
+
+    // Same label as get5MinTimeBucket(ZonedDateTime) for an IST time, without building one
+    static String get5MinTimeBucket(long epochMillis) {
+        return BUCKET_LABELS[istMinuteOfDay(epochMillis) / 5];
+    }
 
     public static String get5MinTimeBucket(String isoDateTimeString) {
         // Parse the ISO-8601 string to ZonedDateTime
-        ZonedDateTime zonedDateTime = ZonedDateTime.parse(isoDateTimeString);
-        
+        return get5MinTimeBucket(ZonedDateTime.parse(isoDateTimeString));
+    }
+
+    public static String get5MinTimeBucket(ZonedDateTime zonedDateTime) {
         // Get the hour and minute
         int hour = zonedDateTime.getHour();
         int minute = zonedDateTime.getMinute();
@@ -206,8 +280,7 @@ public class KafkaPollingService {
             .withNano(0);
         
         // Format the time as HH:mm
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
-        return formatter.format(roundedTime);
+        return BUCKET_FORMATTER.format(roundedTime);
     }
  
     private String getGeohashPrefix(double latitude, double longitude) {
@@ -215,7 +288,9 @@ public class KafkaPollingService {
     }      
    
     @PreDestroy
-    public void shutdown() {
-        consumer.close();
+    public void shutdown() throws InterruptedException {
+        for (LocationConsumerWorker worker : workers) {
+            worker.stop();
+        }
     }
 }
\ No newline at end of file
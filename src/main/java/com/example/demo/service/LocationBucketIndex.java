@@ -0,0 +1,107 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Secondary index over the "user_locations:&lt;geohash&gt;:&lt;bucket&gt;" keys.
+ *
+ * Replaces KEYS-based discovery: the ingest path records every location key it
+ * writes, and the proximity sweep reads the index instead of scanning the keyspace.
+ *
+ * location_index:buckets          ZSET  bucket -> expiry (epoch seconds)
+ * location_index:bucket:&lt;bucket&gt;  SET   geohash cells active in that bucket
+ * location_index:cell_keys:&lt;geohash&gt; ZSET  location key -> expiry (epoch seconds)
+ *
+ * The cell index is scored like the bucket index: expired location keys are trimmed
+ * on every write and skipped on read, so a cell lists at most the buckets still alive.
+ */
+@Component
+public class LocationBucketIndex {
+
+    public static final String LOCATION_KEY_PREFIX = "user_locations:";
+
+    static final String ACTIVE_BUCKETS_KEY = "location_index:buckets";
+    static final String BUCKET_INDEX_PREFIX = "location_index:bucket:";
+    // Was a SET under location_index:cell:; new name so the ZSET never meets an old key (WRONGTYPE)
+    static final String CELL_INDEX_PREFIX = "location_index:cell_keys:";
+
+    // A location key expires one hour after the start of its IST bucket, so at most one
+    // hour after it is written; index keys refreshed with this TTL outlive every key they list.
+    private static final Duration INDEX_TTL = Duration.ofHours(1);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public LocationBucketIndex(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public static String locationKey(String geohash, String timeBucket) {
+        return LOCATION_KEY_PREFIX + geohash + ":" + timeBucket;
+    }
+
+    /**
+     * Queues the index writes for one location key on the given operations.
+     * Meant to be called inside the same MULTI/EXEC as the GEOADD it describes.
+     *
+     * @param ops Redis operations bound to the caller's transaction.
+     * @param geohash 5-character geohash cell of the location key.
+     * @param timeBucket HH:mm bucket label of the location key.
+     * @param expiresAtEpochSeconds Expiry time of the location key.
+     */
+    public void record(RedisOperations<String, String> ops, String geohash, String timeBucket, long expiresAtEpochSeconds) {
+        long nowEpochSeconds = System.currentTimeMillis() / 1000;
+
+        ops.opsForZSet().add(ACTIVE_BUCKETS_KEY, timeBucket, expiresAtEpochSeconds);
+        ops.expire(ACTIVE_BUCKETS_KEY, INDEX_TTL);
+
+        String bucketKey = BUCKET_INDEX_PREFIX + timeBucket;
+        ops.opsForSet().add(bucketKey, geohash);
+        ops.expireAt(bucketKey, Instant.ofEpochSecond(expiresAtEpochSeconds));
+
+        String cellKey = CELL_INDEX_PREFIX + geohash;
+        ops.opsForZSet().add(cellKey, locationKey(geohash, timeBucket), expiresAtEpochSeconds);
+        ops.opsForZSet().removeRangeByScore(cellKey, Double.NEGATIVE_INFINITY, nowEpochSeconds);
+        ops.expire(cellKey, INDEX_TTL);
+    }
+
+    /**
+     * Returns every location key of a bucket that has not expired yet.
+     * Costs one ZRANGEBYSCORE plus one SMEMBERS per active bucket.
+     */
+    public Set<String> activeLocationKeys() {
+        long nowEpochSeconds = System.currentTimeMillis() / 1000;
+        Set<String> buckets = redisTemplate.opsForZSet()
+                .rangeByScore(ACTIVE_BUCKETS_KEY, nowEpochSeconds, Double.POSITIVE_INFINITY);
+        if (buckets == null || buckets.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        Set<String> locationKeys = new HashSet<>();
+        for (String bucket : buckets) {
+            Set<String> cells = redisTemplate.opsForSet().members(BUCKET_INDEX_PREFIX + bucket);
+            if (cells == null) continue;
+            for (String cell : cells) {
+                locationKeys.add(locationKey(cell, bucket));
+            }
+        }
+        return locationKeys;
+    }
+
+    /**
+     * Returns the location keys of one geohash cell that have not expired yet.
+     */
+    public Set<String> locationKeysForCell(String geohash) {
+        long nowEpochSeconds = System.currentTimeMillis() / 1000;
+        Set<String> keys = redisTemplate.opsForZSet()
+                .rangeByScore(CELL_INDEX_PREFIX + geohash, nowEpochSeconds, Double.POSITIVE_INFINITY);
+        return keys != null ? keys : Collections.emptySet();
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.demo.dto.LocationMessage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * One Kafka consumer of the location topic, with its own bounded queue and Redis writer.
+ *
+ * The consumer thread polls continuously and hands each poll to the queue; the writer
+ * thread drains it through the shared write callback and reports the offsets it has
+ * finished, which the consumer thread then commits per partition. A batch that fails to
+ * write is retried with backoff, in order, before any later batch; meanwhile the queue
+ * fills and consumption pauses, so no offset is committed past unwritten records. When the queue is
+ * full the consumer pauses its partitions instead of blocking, so it keeps its group
+ * membership while Redis catches up; partitions assigned while it is full start paused.
+ * Before partitions are revoked the queue is drained and their offsets committed, so the
+ * next owner starts where this one stopped. Every revocation starts a new assignment
+ * generation, and batches polled in an earlier one are written but never committed.
+ *
+ * The writer spends its time waiting on Redis, so it runs on a virtual thread when they
+ * are enabled; the consumer thread stays a platform thread, as it mostly sits in the
+ * Kafka client's selector.
+ */
+final class LocationConsumerWorker implements ConsumerRebalanceListener {
+
+    private static final Logger log = LoggerFactory.getLogger(LocationConsumerWorker.class);
+
+    private static final long REVOKE_DRAIN_TIMEOUT_MS = 30_000;
+    private static final long WRITE_RETRY_MIN_BACKOFF_MS = 100;
+    private static final long WRITE_RETRY_MAX_BACKOFF_MS = 30_000;
+
+    private final String name;
+    private final String topic;
+    private final org.apache.kafka.clients.consumer.Consumer<String, byte[]> consumer;
+    private final Function<byte[], LocationMessage> parser;
+    private final Consumer<List<LocationMessage>> writer;
+    private final Duration pollTimeout;
+    private final ThreadFactory writerThreadFactory;
+
+    private final BlockingQueue<PolledBatch> pendingBatches;
+    // Batches queued or being written; the consumer waits for zero before giving up partitions
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Offsets fully written to Redis and not yet committed; filled by the writer, drained by the consumer
+    private final Map<TopicPartition, OffsetAndMetadata> completedOffsets = new ConcurrentHashMap<>();
+    // Guards completedOffsets updates against a concurrent change of generation
+    private final Object offsetsLock = new Object();
+    // Bumped on the consumer thread whenever partitions are revoked or lost
+    private long assignmentGeneration;
+    private volatile boolean running;
+    private Thread consumerThread;
+    private Thread writerThread;
+
+    private final Counter recordsConsumed;
+    private final Counter recordsWritten;
+    private final Counter pauses;
+    private final Counter writeRetries;
+    private final Timer batchWriteTimer;
+
+    LocationConsumerWorker(String name, String topic, org.apache.kafka.clients.consumer.Consumer<String, byte[]> consumer,
+                           Function<byte[], LocationMessage> parser, Consumer<List<LocationMessage>> writer,
+                           int queueCapacity, Duration pollTimeout, ThreadFactory writerThreadFactory,
+                           MeterRegistry meterRegistry) {
+        this.name = name;
+        this.topic = topic;
+        this.consumer = consumer;
+        this.parser = parser;
+        this.writer = writer;
+        this.pollTimeout = pollTimeout;
+        this.writerThreadFactory = writerThreadFactory;
+        this.pendingBatches = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("location.ingest.queue.size", pendingBatches, BlockingQueue::size)
+                .description("Polled batches waiting to be written to Redis")
+                .tag("worker", name)
+                .register(meterRegistry);
+        Gauge.builder("location.ingest.queue.remaining", pendingBatches, BlockingQueue::remainingCapacity)
+                .tag("worker", name)
+                .register(meterRegistry);
+        this.recordsConsumed = meterRegistry.counter("location.ingest.records.consumed", "worker", name);
+        this.recordsWritten = meterRegistry.counter("location.ingest.records.written", "worker", name);
+        this.pauses = meterRegistry.counter("location.ingest.consumer.pauses", "worker", name);
+        this.writeRetries = meterRegistry.counter("location.ingest.batch.write.retries", "worker", name);
+        this.batchWriteTimer = meterRegistry.timer("location.ingest.batch.write", "worker", name);
+    }
+
+    void start() {
+        running = true;
+        writerThread = writerThreadFactory.newThread(this::writeLoop);
+        writerThread.setName(name + "-writer");
+        consumerThread = new Thread(this::consumeLoop, name);
+        writerThread.start();
+        consumerThread.start();
+    }
+
+    void stop() throws InterruptedException {
+        running = false;
+        consumer.wakeup();
+        consumerThread.join();
+        writerThread.join();
+    }
+
+    private void consumeLoop() {
+        try {
+            consumer.subscribe(Collections.singletonList(topic), this);
+            while (running) {
+                commitCompletedOffsets();
+                applyBackpressure();
+
+                ConsumerRecords<String, byte[]> records = consumer.poll(pollTimeout);
+                if (records.isEmpty()) continue;
+
+                // Temporary buffer to store messages before writing to Redis
+                List<LocationMessage> locationMessages = new ArrayList<>(records.count());
+                Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+                for (ConsumerRecord<String, byte[]> record : records) {
+                    try {
+                        locationMessages.add(parser.apply(record.value()));
+                    } catch (RuntimeException e) {
+                        log.error("Skipping unparseable location record {}-{}@{}", record.topic(), record.partition(), record.offset(), e);
+                    }
+                    offsets.put(new TopicPartition(record.topic(), record.partition()),
+                            new OffsetAndMetadata(record.offset() + 1));
+                }
+
+                // Never block here: a consumer stuck on a full queue stops polling and is evicted from the group.
+                // Partitions assigned during the poll start paused when the queue is full, so this is a safety net.
+                inFlight.incrementAndGet();
+                if (!pendingBatches.offer(new PolledBatch(locationMessages, offsets, assignmentGeneration))) {
+                    inFlight.decrementAndGet();
+                    rewindAndPause(records);
+                    continue;
+                }
+                recordsConsumed.increment(records.count());
+            }
+        } catch (WakeupException e) {
+            if (running) throw e;
+        } catch (RuntimeException e) {
+            log.error("Location consumer {} stopped unexpectedly", name, e);
+        } finally {
+            try {
+                awaitInFlightWrites();
+                commitCompletedOffsets();
+            } finally {
+                consumer.close();
+            }
+        }
+    }
+
+    // Stop fetching while the writer is behind, but keep polling so the consumer stays in the group
+    private void applyBackpressure() {
+        if (pendingBatches.remainingCapacity() == 0) {
+            if (!consumer.paused().containsAll(consumer.assignment())) {
+                consumer.pause(consumer.assignment());
+                pauses.increment();
+                log.warn("Location ingest queue of {} full, pausing consumption", name);
+            }
+        } else if (!consumer.paused().isEmpty()) {
+            consumer.resume(consumer.paused());
+        }
+    }
+
+    // Puts the batch back to be fetched again once the writer has caught up
+    private void rewindAndPause(ConsumerRecords<String, byte[]> records) {
+        for (TopicPartition partition : records.partitions()) {
+            consumer.seek(partition, records.records(partition).get(0).offset());
+        }
+        consumer.pause(records.partitions());
+        pauses.increment();
+        log.warn("Location ingest queue of {} full, re-reading {} records of {} later",
+                name, records.count(), records.partitions());
+    }
+
+    private void writeLoop() {
+        boolean abandoned = false;
+        while (running || !pendingBatches.isEmpty()) {
+            PolledBatch batch;
+            try {
+                batch = pendingBatches.poll(pollTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (batch == null) continue;
+
+            try {
+                // After giving up on a batch at shutdown, later batches must not be committed either
+                if (!abandoned && writeWithRetry(batch)) {
+                    recordsWritten.increment(batch.messages.size());
+                    // Consumer acknowledgment: offsets are committed only once their messages are in Redis.
+                    // If the service fails before committing, the messages are reprocessed when it restarts.
+                    completeOffsets(batch);
+                } else {
+                    abandoned = true;
+                }
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    // Retries until the batch is written; false only when stopping (or interrupted) first
+    private boolean writeWithRetry(PolledBatch batch) {
+        long backoffMs = WRITE_RETRY_MIN_BACKOFF_MS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                // Batch update Redis after processing all messages
+                batchWriteTimer.record(() -> writer.accept(batch.messages));
+                return true;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    log.error("Failed to write {} location updates to Redis while stopping; "
+                            + "they will be re-read from the last committed offset", batch.messages.size(), e);
+                    return false;
+                }
+                writeRetries.increment();
+                log.warn("Failed to write {} location updates to Redis (attempt {}), retrying in {} ms",
+                        batch.messages.size(), attempt, backoffMs, e);
+            }
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextLong(backoffMs / 2, backoffMs + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            backoffMs = Math.min(backoffMs * 2, WRITE_RETRY_MAX_BACKOFF_MS);
+        }
+    }
+
+    private void completeOffsets(PolledBatch batch) {
+        synchronized (offsetsLock) {
+            if (batch.generation == assignmentGeneration) {
+                completedOffsets.putAll(batch.offsets);
+            } else {
+                // Finished after its partitions were revoked; committing it could skip records re-read on reassignment
+                log.warn("{} dropping offsets {} of a batch written after its partitions were revoked", name, batch.offsets);
+            }
+        }
+    }
+
+    // Called on the consumer thread, after committing what we could for these partitions
+    private void forgetPartitions(Collection<TopicPartition> partitions) {
+        synchronized (offsetsLock) {
+            assignmentGeneration++;
+            partitions.forEach(completedOffsets::remove);
+        }
+    }
+
+    // Called on the consumer thread only: KafkaConsumer is not thread-safe
+    private void commitCompletedOffsets() {
+        if (completedOffsets.isEmpty()) return;
+        Map<TopicPartition, OffsetAndMetadata> snapshot = new HashMap<>(completedOffsets);
+        Map<TopicPartition, OffsetAndMetadata> toCommit = new HashMap<>(snapshot);
+        toCommit.keySet().retainAll(consumer.assignment());
+        if (!toCommit.isEmpty()) {
+            consumer.commitSync(toCommit);
+        }
+        // Offsets of partitions we no longer own are dropped; the new owner re-reads from its committed offset.
+        // Entries the writer advanced in the meantime stay for the next commit.
+        snapshot.forEach(completedOffsets::remove);
+    }
+
+    private void awaitInFlightWrites() {
+        long deadline = System.currentTimeMillis() + REVOKE_DRAIN_TIMEOUT_MS;
+        while (inFlight.get() > 0 && writerThread.isAlive()) {
+            if (System.currentTimeMillis() > deadline) {
+                log.warn("{} still has {} batches in flight after {} ms", name, inFlight.get(), REVOKE_DRAIN_TIMEOUT_MS);
+                return;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) return;
+        log.info("{} losing partitions {}, flushing in-flight writes", name, partitions);
+        // Everything queued so far may belong to the revoked partitions: write it and commit
+        // while we still own them.
+        awaitInFlightWrites();
+        commitCompletedOffsets();
+        // Batches still in flight after the drain timeout must not be committed later
+        forgetPartitions(partitions);
+    }
+
+    @Override
+    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+        log.info("{} assigned partitions {}", name, partitions);
+        // Runs inside poll(), after applyBackpressure(): without this the poll could return their records
+        // with nowhere to put them
+        if (!partitions.isEmpty() && pendingBatches.remainingCapacity() == 0) {
+            consumer.pause(partitions);
+            pauses.increment();
+            log.warn("Location ingest queue of {} full, assigned partitions start paused", name);
+        }
+    }
+
+    @Override
+    public void onPartitionsLost(Collection<TopicPartition> partitions) {
+        // Ownership is already gone, so committing would fail; the new owner re-reads from the last commit
+        log.warn("{} lost partitions {}", name, partitions);
+        forgetPartitions(partitions);
+    }
+
+    // One poll's worth of parsed messages plus the offsets to commit once they are written
+    private static final class PolledBatch {
+        final List<LocationMessage> messages;
+        final Map<TopicPartition, OffsetAndMetadata> offsets;
+        final long generation;
+
+        PolledBatch(List<LocationMessage> messages, Map<TopicPartition, OffsetAndMetadata> offsets, long generation) {
+            this.messages = messages;
+            this.offsets = offsets;
+            this.generation = generation;
+        }
+    }
+}
@@ -2,16 +2,20 @@ package com.example.demo.service;
 
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
 import com.example.demo.dto.LocationMessage;
-import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 import org.springframework.kafka.support.SendResult;
 
@@ -25,11 +29,26 @@ public class LocationKafkaProducer {
     private final KafkaTemplate<String, LocationMessage> kafkaTemplate;
     private final String topicName;
 
+    // Only every n-th success (and the first and every n-th failure) is logged; every send is still counted and timed
+    private final long logSampleRate;
+    private final AtomicLong completions = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private final Timer sendTimer;
+    private final Counter sendErrors;
+
      // Inject the specific KafkaTemplate and topic name
     public LocationKafkaProducer(KafkaTemplate<String, LocationMessage> kafkaTemplate,
-                                 @Value("${app.kafka.topic.location-updates}") String topicName) {
+                                 @Value("${app.kafka.topic.location-updates}") String topicName,
+                                 @Value("${app.kafka.producer.log-sample-rate:1000}") long logSampleRate,
+                                 MeterRegistry meterRegistry) {
         this.kafkaTemplate = kafkaTemplate;
         this.topicName = topicName;
+        this.logSampleRate = Math.max(logSampleRate, 1);
+        this.sendTimer = Timer.builder("location.producer.send")
+                .description("Time from send to broker acknowledgement")
+                .register(meterRegistry);
+        this.sendErrors = meterRegistry.counter("location.producer.send.errors");
     }
 
     /**
@@ -43,23 +62,30 @@ public class LocationKafkaProducer {
             return;
         }
 
-     
+        long start = System.nanoTime();
         // Send asynchronously. The CompletableFuture allows adding callbacks.
         CompletableFuture<SendResult<String, LocationMessage>> future =
                 kafkaTemplate.send(topicName, message.getUserId(), message);
 
-        // Add a non-blocking callback to log success or failure
+        // Add a non-blocking callback to record the outcome; runs on the producer I/O thread, so keep it cheap
         future.whenComplete((result, ex) -> {
+            sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             if (ex == null) {
                 // Success
-                log.info("Sent location message for user '{}' to topic '{}' partition=[{}] with offset=[{}]",
-                        message.getUserId(), topicName, result.getRecordMetadata().partition(), result.getRecordMetadata().offset());
+                if (completions.incrementAndGet() % logSampleRate == 0) {
+                    log.info("Sent location message for user '{}' to topic '{}' partition=[{}] with offset=[{}] (1 in {} logged)",
+                            message.getUserId(), topicName, result.getRecordMetadata().partition(),
+                            result.getRecordMetadata().offset(), logSampleRate);
+                }
             } else {
                 // Failure
-                log.error("Unable to send location message for user '{}' to topic '{}' due to: {}",
-                        message.getUserId(), topicName, ex.getMessage());
-                // Consider adding metrics or specific error handling here
+                sendErrors.increment();
+                long failed = failures.incrementAndGet();
+                if (failed == 1 || failed % logSampleRate == 0) {
+                    log.error("Unable to send location message for user '{}' to topic '{}' due to: {} ({} failures so far)",
+                            message.getUserId(), topicName, ex.getMessage(), failed);
+                }
             }
         });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,194 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+import com.example.demo.dto.LocationMessage;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads {@link LocationMessage} records from the location topic.
+ *
+ * The JSON layout is fixed (userId, latitude, longitude, userDateTime), so instead of
+ * going through a data-binding ObjectMapper per record this walks the tokens once with
+ * a shared, thread-safe JsonFactory and fills the fields directly. Unknown fields are
+ * skipped; all four known fields are required, latitude and longitude must be JSON
+ * numbers, and anything else is rejected with an IllegalArgumentException so the
+ * consumer skips just that record.
+ *
+ * Records can also use a compact binary layout (app.kafka.location-format=binary),
+ * big-endian, 34 bytes for a UUID user id:
+ *
+ *   byte    version (1)
+ *   byte    user id kind: 1 = UUID, then 16 bytes; 0 = string, then u16 length + UTF-8
+ *   int     latitude  in 1e-7 degrees
+ *   int     longitude in 1e-7 degrees
+ *   long    userDateTime as epoch millis
+ *
+ * 1e-7 degrees is about 1 cm, well below GPS accuracy. The zone is not stored, since
+ * userDateTime is always produced in IST: binary records decode to userEpochMillis
+ * only, and encoding uses userEpochMillis when set, the userDateTime string otherwise.
+ * {@link #decode(byte[])} accepts both formats, since a JSON record never starts
+ * with the version byte, so consumers can be switched before producers.
+ */
+public final class LocationMessageCodec {
+
+    static final byte BINARY_V1 = 1;
+
+    private static final byte ID_STRING = 0;
+    private static final byte ID_UUID = 1;
+    private static final double COORDINATE_SCALE = 1e7;
+    private static final int FIXED_BINARY_SIZE = 1 + 1 + 4 + 4 + 8;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private LocationMessageCodec() {
+    }
+
+    /**
+     * Decodes a record in either format, looking at the first byte.
+     */
+    public static LocationMessage decode(byte[] payload) {
+        if (payload == null || payload.length == 0) {
+            throw new IllegalArgumentException("Empty location message");
+        }
+        return payload[0] == BINARY_V1 ? decodeBinary(payload) : decodeJson(payload);
+    }
+
+    public static byte[] encodeBinary(LocationMessage message) {
+        if (message.getUserId() == null || message.getLatitude() == null || message.getLongitude() == null
+                || (message.getUserEpochMillis() == null && message.getUserDateTime() == null)) {
+            throw new IllegalArgumentException("Location message is missing fields: " + message);
+        }
+
+        UUID uuid = asUuid(message.getUserId());
+        byte[] userId = uuid == null ? message.getUserId().getBytes(StandardCharsets.UTF_8) : null;
+        if (userId != null && userId.length > 0xFFFF) {
+            throw new IllegalArgumentException("User id too long for binary location message");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_BINARY_SIZE + (uuid != null ? 16 : 2 + userId.length));
+        buffer.put(BINARY_V1);
+        if (uuid != null) {
+            buffer.put(ID_UUID);
+            buffer.putLong(uuid.getMostSignificantBits());
+            buffer.putLong(uuid.getLeastSignificantBits());
+        } else {
+            buffer.put(ID_STRING);
+            buffer.putShort((short) userId.length);
+            buffer.put(userId);
+        }
+        buffer.putInt((int) Math.round(message.getLatitude() * COORDINATE_SCALE));
+        buffer.putInt((int) Math.round(message.getLongitude() * COORDINATE_SCALE));
+        buffer.putLong(message.getUserEpochMillis() != null ? message.getUserEpochMillis()
+                : ZonedDateTime.parse(message.getUserDateTime()).toInstant().toEpochMilli());
+        return buffer.array();
+    }
+
+    public static LocationMessage decodeBinary(byte[] payload) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(payload);
+            byte version = buffer.get();
+            if (version != BINARY_V1) {
+                throw new IllegalArgumentException("Unsupported location message version " + version);
+            }
+
+            LocationMessage message = new LocationMessage();
+            byte idKind = buffer.get();
+            if (idKind == ID_UUID) {
+                message.setUserId(new UUID(buffer.getLong(), buffer.getLong()).toString());
+            } else if (idKind == ID_STRING) {
+                byte[] userId = new byte[Short.toUnsignedInt(buffer.getShort())];
+                buffer.get(userId);
+                message.setUserId(new String(userId, StandardCharsets.UTF_8));
+            } else {
+                throw new IllegalArgumentException("Unknown user id kind " + idKind);
+            }
+            message.setLatitude(buffer.getInt() / COORDINATE_SCALE);
+            message.setLongitude(buffer.getInt() / COORDINATE_SCALE);
+            // Kept as epoch millis: the consumer derives the bucket from it without formatting and re-parsing
+            message.setUserEpochMillis(buffer.getLong());
+            return message;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated binary location message of " + payload.length + " bytes", e);
+        }
+    }
+
+    // Only the canonical lower-case form, so decoding gives back exactly the same string
+    private static UUID asUuid(String userId) {
+        if (userId.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(userId);
+            return uuid.toString().equals(userId) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public static LocationMessage decodeJson(String json) {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return readMessage(parser);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to parse location message: " + json, e);
+        }
+    }
+
+    public static LocationMessage decodeJson(byte[] json) {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return readMessage(parser);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to parse location message of " + json.length + " bytes", e);
+        }
+    }
+
+    private static LocationMessage readMessage(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON object");
+        }
+
+        LocationMessage message = new LocationMessage();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "userId" -> message.setUserId(readString(parser, value, field));
+                case "latitude" -> message.setLatitude(readNumber(parser, value, field));
+                case "longitude" -> message.setLongitude(readNumber(parser, value, field));
+                case "userDateTime" -> message.setUserDateTime(readString(parser, value, field));
+                default -> parser.skipChildren();
+            }
+        }
+        if (message.getUserId() == null || message.getLatitude() == null || message.getLongitude() == null
+                || message.getUserDateTime() == null) {
+            throw new IllegalArgumentException("Location message is missing fields: " + message);
+        }
+        return message;
+    }
+
+    // getValueAsDouble() would turn "abc", true or an object into 0.0, a real place on the map
+    private static Double readNumber(JsonParser parser, JsonToken value, String field) throws IOException {
+        if (value != JsonToken.VALUE_NUMBER_INT && value != JsonToken.VALUE_NUMBER_FLOAT) {
+            throw new IllegalArgumentException("Location message field " + field + " is not a number: " + value);
+        }
+        double number = parser.getDoubleValue();
+        if (!Double.isFinite(number)) {
+            throw new IllegalArgumentException("Location message field " + field + " is out of range");
+        }
+        return number;
+    }
+
+    private static String readString(JsonParser parser, JsonToken value, String field) throws IOException {
+        if (value != JsonToken.VALUE_STRING) {
+            throw new IllegalArgumentException("Location message field " + field + " is not a string: " + value);
+        }
+        return parser.getText();
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.demo.service;
+
+import org.apache.kafka.common.serialization.Deserializer;
+
+import com.example.demo.dto.LocationMessage;
+
+/**
+ * Kafka deserializer for location records in either the JSON or the binary layout
+ * (see {@link LocationMessageCodec#decode(byte[])}), for consumers that want typed
+ * values. {@link KafkaPollingService} decodes the raw bytes itself so a bad record
+ * is skipped instead of failing the poll.
+ */
+public class LocationMessageDeserializer implements Deserializer<LocationMessage> {
+
+    @Override
+    public LocationMessage deserialize(String topic, byte[] data) {
+        return data == null ? null : LocationMessageCodec.decode(data);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo.service;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+import com.example.demo.dto.LocationMessage;
+
+/**
+ * Kafka serializer writing {@link LocationMessage} in the binary layout described in
+ * {@link LocationMessageCodec}. Used by the producer when app.kafka.location-format=binary.
+ */
+public class LocationMessageSerializer implements Serializer<LocationMessage> {
+
+    @Override
+    public byte[] serialize(String topic, LocationMessage message) {
+        return message == null ? null : LocationMessageCodec.encodeBinary(message);
+    }
+}
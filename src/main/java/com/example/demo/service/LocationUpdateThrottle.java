@@ -0,0 +1,103 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dto.LocationMessage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.davidmoten.geo.GeoHash;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Drops location updates that would not change anything downstream.
+ *
+ * Remembers the last forwarded point per user. An update is suppressed when it falls
+ * in the same 5-minute bucket and geohash cell as that point and has moved less than
+ * app.location.throttle.min-distance-m: the Redis index and the nearby sweep already
+ * have the user there for that bucket. At most app.location.throttle.max-users users
+ * are tracked; entries expire with their bucket.
+ */
+@Component
+public class LocationUpdateThrottle {
+
+    private static final long BUCKET_MILLIS = 5 * 60 * 1000L;
+
+    private final boolean enabled;
+    private final double minDistanceKm;
+    private final Cache<String, ForwardedPoint> lastForwarded;
+
+    private final Counter forwarded;
+    private final Counter suppressed;
+
+    public LocationUpdateThrottle(@Value("${app.location.throttle.enabled:true}") boolean enabled,
+                                  @Value("${app.location.throttle.min-distance-m:50}") double minDistanceMeters,
+                                  @Value("${app.location.throttle.max-users:100000}") long maxUsers,
+                                  MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.minDistanceKm = minDistanceMeters / 1000.0;
+        this.lastForwarded = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(Duration.ofMillis(BUCKET_MILLIS))
+                .build();
+
+        this.forwarded = meterRegistry.counter("location.throttle.forwarded");
+        this.suppressed = meterRegistry.counter("location.throttle.suppressed");
+        Gauge.builder("location.throttle.tracked.users", lastForwarded, Cache::estimatedSize)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param message Update with userId, latitude and longitude set.
+     * @param epochMillis Time of the update.
+     * @return true when the update should be sent to Kafka.
+     */
+    public boolean shouldForward(LocationMessage message, long epochMillis) {
+        if (!enabled || message.getLatitude() == null || message.getLongitude() == null) {
+            forwarded.increment();
+            return true;
+        }
+
+        double latitude = message.getLatitude();
+        double longitude = message.getLongitude();
+        ForwardedPoint candidate = new ForwardedPoint(epochMillis / BUCKET_MILLIS,
+                GeoHash.encodeHash(latitude, longitude, 5), latitude, longitude);
+
+        // compute() is atomic per user, so two concurrent posts cannot both be suppressed against a stale point
+        boolean[] forward = new boolean[1];
+        lastForwarded.asMap().compute(message.getUserId(), (userId, last) -> {
+            if (last != null && last.coalesces(candidate, minDistanceKm)) {
+                return last;
+            }
+            forward[0] = true;
+            return candidate;
+        });
+
+        (forward[0] ? forwarded : suppressed).increment();
+        return forward[0];
+    }
+
+    private static final class ForwardedPoint {
+        final long bucket;
+        final String cell;
+        final double latitude;
+        final double longitude;
+
+        ForwardedPoint(long bucket, String cell, double latitude, double longitude) {
+            this.bucket = bucket;
+            this.cell = cell;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        boolean coalesces(ForwardedPoint next, double minDistanceKm) {
+            return bucket == next.bucket && cell.equals(next.cell)
+                    && ProximityEngine.distanceKm(latitude, longitude, next.latitude, next.longitude) < minDistanceKm;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Secondary index over the "nearby:&lt;userId&gt;:&lt;otherUserId&gt;" keys, so a user's
+ * nearby list is read without a KEYS scan over the whole keyspace.
+ *
+ * nearby_index:&lt;userId&gt;  ZSET  otherUserId -> expiry of the nearby key (epoch seconds)
+ *
+ * Every write to a nearby key is mirrored here with the key's expiry as the score;
+ * expired entries are trimmed on write and skipped on read.
+ */
+@Component
+public class NearbyUserIndex {
+
+    static final String INDEX_PREFIX = "nearby_index:";
+
+    // Longer than any nearby key lives: UserLocationService gives them bucket + 1 h + 15 min,
+    // up to a day ahead when a bucket label wraps past midnight. Refreshed on every write.
+    private static final Duration INDEX_TTL = Duration.ofHours(26);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public NearbyUserIndex(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Queues the index writes for nearby keys created with SET NX by a sweep. Entries
+     * already present keep their score, as their keys keep their expiry.
+     *
+     * @param ops Redis operations bound to the caller's pipeline.
+     * @param userId User the nearby keys belong to.
+     * @param expiryByOtherUser Other user mapped to the expiry of its nearby key (epoch seconds).
+     */
+    public void recordSweep(RedisOperations<String, String> ops, String userId, Map<String, Long> expiryByOtherUser) {
+        String indexKey = INDEX_PREFIX + userId;
+        // Expired entries first, or a re-created key would find its stale entry and keep the old score
+        ops.opsForZSet().removeRangeByScore(indexKey, Double.NEGATIVE_INFINITY, System.currentTimeMillis() / 1000);
+        expiryByOtherUser.forEach((otherUserId, expiresAt) -> ops.opsForZSet().addIfAbsent(indexKey, otherUserId, expiresAt));
+        ops.expire(indexKey, INDEX_TTL);
+    }
+
+    /**
+     * Records a nearby key written unconditionally, such as a like, with its new expiry.
+     */
+    public void put(String userId, String otherUserId, long expiresAtEpochSeconds) {
+        String indexKey = INDEX_PREFIX + userId;
+        redisTemplate.opsForZSet().add(indexKey, otherUserId, expiresAtEpochSeconds);
+        redisTemplate.expire(indexKey, INDEX_TTL);
+    }
+
+    public void remove(String userId, String otherUserId) {
+        redisTemplate.opsForZSet().remove(INDEX_PREFIX + userId, otherUserId);
+    }
+
+    /**
+     * Returns the users whose nearby key for this user has not expired yet. One ZRANGEBYSCORE.
+     */
+    public Set<String> nearbyUserIds(String userId) {
+        long nowEpochSeconds = System.currentTimeMillis() / 1000;
+        Set<String> userIds = redisTemplate.opsForZSet()
+                .rangeByScore(INDEX_PREFIX + userId, nowEpochSeconds, Double.POSITIVE_INFINITY);
+        return userIds != null ? userIds : Collections.emptySet();
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.demo.service;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Strategy used by {@link UserLocationService} to find which location entries are
+ * close to each other. Selected with app.proximity.engine (redis | grid).
+ *
+ * Entries are identified by their location member, "userId:HH:mm", the same value
+ * stored in the "user_locations:*" geo sets.
+ */
+public interface ProximityEngine {
+
+    /**
+     * Called by the ingest path for every accepted location update, after it has
+     * been written to Redis. Engines that read Redis directly can ignore it.
+     *
+     * @param locationMember "userId:HH:mm" member written to Redis.
+     * @param latitude Latitude of the update.
+     * @param longitude Longitude of the update.
+     * @param epochMillis Time of the update, used to pick its 5-minute bucket.
+     */
+    default void onLocation(String locationMember, double latitude, double longitude, long epochMillis) {
+    }
+
+    /**
+     * Finds every pair of location entries, belonging to different users, that lie
+     * within the search radius of each other.
+     *
+     * @param searchRadiusKm Maximum distance between two entries, in kilometres.
+     * @return Location member mapped to the members near it. Each pair appears in both directions.
+     */
+    Map<String, Set<String>> findNearbyMembers(double searchRadiusKm);
+
+    // Haversine distance in km
+    static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        final int R = 6371; // Earth's radius in km
+
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                        Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+
+        return R * c;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.demo.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Runs the nearby-user computation on its own schedule, independent of Kafka ingest.
+ * fixedDelay means a slow sweep pushes the next one back instead of piling up.
+ */
+@Service
+public class ProximitySweepService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProximitySweepService.class);
+
+    private final UserLocationService userLocationService;
+    private final double searchRadiusKm;
+
+    private final Timer sweepTimer;
+    private final Counter sweepFailures;
+    private final AtomicLong lastSweepCompletedMillis = new AtomicLong(System.currentTimeMillis());
+    private final AtomicLong lastSweepUsers = new AtomicLong();
+
+    public ProximitySweepService(UserLocationService userLocationService, MeterRegistry meterRegistry,
+                                 @Value("${app.proximity.search-radius-km:5}") double searchRadiusKm) {
+        this.userLocationService = userLocationService;
+        this.searchRadiusKm = searchRadiusKm;
+
+        this.sweepTimer = meterRegistry.timer("proximity.sweep");
+        this.sweepFailures = meterRegistry.counter("proximity.sweep.failures");
+        // Grows past the sweep interval when sweeps fall behind
+        Gauge.builder("proximity.sweep.staleness.seconds", lastSweepCompletedMillis,
+                        last -> (System.currentTimeMillis() - last.get()) / 1000.0)
+                .register(meterRegistry);
+        Gauge.builder("proximity.sweep.users", lastSweepUsers, AtomicLong::get)
+                .description("Users with at least one nearby user in the last sweep")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.proximity.sweep-interval-ms:10000}")
+    public void sweep() {
+        try {
+            Map<String, Set<String>> nearby = sweepTimer.recordCallable(
+                    () -> userLocationService.findNearbyUsersForAll(searchRadiusKm));
+            lastSweepUsers.set(nearby != null ? nearby.size() : 0);
+            lastSweepCompletedMillis.set(System.currentTimeMillis());
+            log.debug("Proximity sweep found nearby users for {} users", lastSweepUsers.get());
+        } catch (Exception e) {
+            sweepFailures.increment();
+            log.error("Proximity sweep failed", e);
+        }
+    }
+}
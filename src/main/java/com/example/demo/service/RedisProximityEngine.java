@@ -0,0 +1,138 @@
+package com.example.demo.service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.geo.Point;
+import org.springframework.data.redis.core.GeoOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.domain.geo.GeoLocation;
+import org.springframework.stereotype.Component;
+
+import com.github.davidmoten.geo.GeoHash;
+
+/**
+ * Default engine: reloads every active location from Redis on each sweep and checks
+ * each entry against the users of its own and neighbouring geohash cells.
+ */
+@Component
+@ConditionalOnProperty(name = "app.proximity.engine", havingValue = "redis", matchIfMissing = true)
+public class RedisProximityEngine implements ProximityEngine {
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    private final LocationBucketIndex locationBucketIndex;
+
+    public RedisProximityEngine(RedisTemplate<String, String> redisTemplate, LocationBucketIndex locationBucketIndex) {
+        this.redisTemplate = redisTemplate;
+        this.locationBucketIndex = locationBucketIndex;
+    }
+
+    @Override
+    public Map<String, Set<String>> findNearbyMembers(double searchRadiusKm) {
+        Set<String> activeKeys = locationBucketIndex.activeLocationKeys();  // Step 1: Fetch all active buckets
+        Map<String, Set<Point>> userLocations = new HashMap<>();  // Store user locations
+        Map<String, Set<String>> membersByKey = new HashMap<>();  // Members of each location key, read once
+        Map<String, Set<String>> usersByRegion = new HashMap<>(); // Per-sweep cache: one index read per cell
+        Map<String, Set<String>> nearbyMembers = new HashMap<>();
+
+        // Step 2: Fetch all users and store locations
+        for (String redisKey : activeKeys) {
+            Set<String> members = new HashSet<>();
+            for (GeoLocation<String> location : getAllLocations(redisKey)) {
+                userLocations.computeIfAbsent(location.getName(), k -> new HashSet<>()).add(location.getPoint());
+                members.add(location.getName());
+            }
+            membersByKey.put(redisKey, members);
+        }
+
+        for (Map.Entry<String, Set<Point>> entry : userLocations.entrySet()) {
+            String userIdWithTimestamp = entry.getKey();
+            String baseUserId = userIdWithTimestamp.split(":")[0];
+
+            for (Point userPoint : entry.getValue()) {
+                // Get geohash of the current user plus all neighbouring geohashes
+                String userGeohash = getGeohash(userPoint);
+                Set<String> geohashRegions = getNeighboringGeohashes(userGeohash);
+
+                for (String geohashRegion : geohashRegions) {
+                    // Fetch users from this geohash region
+                    Set<String> regionUsers = usersByRegion.computeIfAbsent(geohashRegion,
+                            region -> getUsersInGeohashRegion(region, membersByKey));
+                    for (String otherUserIdWithTimestamp : regionUsers) {
+                        String baseOtherUserId = otherUserIdWithTimestamp.split(":")[0];
+                        if (baseUserId.equals(baseOtherUserId)) continue;
+
+                        Set<Point> otherUserPoints = userLocations.get(otherUserIdWithTimestamp);
+                        if (otherUserPoints == null) continue;
+
+                        for (Point otherPoint : otherUserPoints) {
+                            // Point x = longitude, y = latitude
+                            if (ProximityEngine.distanceKm(userPoint.getY(), userPoint.getX(),
+                                    otherPoint.getY(), otherPoint.getX()) <= searchRadiusKm) {
+                                nearbyMembers.computeIfAbsent(userIdWithTimestamp, k -> new HashSet<>())
+                                        .add(otherUserIdWithTimestamp);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return nearbyMembers;
+    }
+
+    public Set<GeoLocation<String>> getAllLocations(String redisKey) {
+        GeoOperations<String, String> geoOps = redisTemplate.opsForGeo();
+
+        // Fetch all members (user IDs with location info) from the given key
+        Set<String> members = redisTemplate.opsForZSet().range(redisKey, 0, -1);
+
+        if (members == null || members.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        Set<GeoLocation<String>> locations = new HashSet<>();
+
+        for (String member : members) {
+            // Fetch the geographic position for each user ID
+            List<Point> positions = geoOps.position(redisKey, member);
+            if (positions != null && !positions.isEmpty() && positions.get(0) != null) {
+                locations.add(new GeoLocation<>(member, positions.get(0))); // Store user with location
+            }
+        }
+
+        return locations;
+    }
+
+    // Members come from the keys already loaded this sweep, so a cell costs one index read and no ZRANGE
+    private Set<String> getUsersInGeohashRegion(String geohashRegion, Map<String, Set<String>> membersByKey) {
+        Set<String> allUsers = new HashSet<>();
+
+        // Get all live bucketed keys recorded for the given geohash region
+        for (String redisKey : locationBucketIndex.locationKeysForCell(geohashRegion)) {
+            Set<String> users = membersByKey.get(redisKey);
+            if (users != null) {
+                allUsers.addAll(users);
+            }
+        }
+
+        return allUsers;
+    }
+
+    public Set<String> getNeighboringGeohashes(String geohash) {
+        List<String> neighbors = GeoHash.neighbours(geohash); // Get 8 neighboring geohashes
+        Set<String> geohashRegions = new HashSet<>(neighbors);
+        geohashRegions.add(geohash); // Include the original geohash
+        return geohashRegions;
+    }
+
+    public String getGeohash(Point point) {
+        return GeoHash.encodeHash(point.getY(), point.getX(), 5); // 5-character precision
+    }
+}
@@ -5,149 +5,127 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.Duration;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import org.springframework.data.geo.Point;
-import org.springframework.data.redis.core.GeoOperations;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.domain.geo.GeoLocation;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.stereotype.Service;
 
-import com.github.davidmoten.geo.GeoHash;
-
 @Service
 public class UserLocationService {
 
     private final RedisTemplate<String, String> redisTemplate;
 
-    public UserLocationService(RedisTemplate<String, String> redisTemplate) {
-        this.redisTemplate = redisTemplate;
-    }
-
-    // ✅ Fetch All Active Time Buckets (Only Non-Expired Keys)
-    private Set<String> getActiveTimeBuckets() {
-        return redisTemplate.keys("user_locations:*");  // Fetch only active Redis keys
-    }
-    public Set<GeoLocation<String>> getAllLocations(String redisKey) {
-        GeoOperations<String, String> geoOps = redisTemplate.opsForGeo(); // ✅ Get GeoOperations
-
-        // Fetch all members (user IDs with location info) from the given key
-        Set<String> members = redisTemplate.opsForZSet().range(redisKey, 0, -1);
-
-        if (members == null || members.isEmpty()) {
-            return Collections.emptySet();
-        }
-
-        Set<GeoLocation<String>> locations = new HashSet<>();
+    private final ProximityEngine proximityEngine;
 
-        for (String member : members) {
-            // ✅ Fetch the geographic position for each user ID
-            List<Point> positions = geoOps.position(redisKey, member);
-            if (positions != null && !positions.isEmpty()) {
-                locations.add(new GeoLocation<>(member, positions.get(0))); // Store user with location
-            }
-        }
+    private final NearbyUserIndex nearbyUserIndex;
 
-        return locations;
+    public UserLocationService(RedisTemplate<String, String> redisTemplate, ProximityEngine proximityEngine,
+                               NearbyUserIndex nearbyUserIndex) {
+        this.redisTemplate = redisTemplate;
+        this.proximityEngine = proximityEngine;
+        this.nearbyUserIndex = nearbyUserIndex;
     }
-    
+
     // ✅ Find Nearby Users for All Users (Avoiding Duplicates)
+    // Pair detection is delegated to the configured ProximityEngine; only the resulting
+    // "nearby:" keys are written here, all in one pipeline.
     public Map<String, Set<String>> findNearbyUsersForAll(double searchRadiusKm) {
-    	
-        Set<String> activeKeys = getActiveTimeBuckets();  // Step 1: Fetch all active buckets
-        System.out.print(activeKeys);
-        Map<String, Set<Point>> userLocations = new HashMap<>();  // Store user locations
+
+        Map<String, Set<String>> nearbyMembers = proximityEngine.findNearbyMembers(searchRadiusKm);
         Map<String, Set<String>> nearbyUsersMap = new HashMap<>();  // Store nearby users
-       
-        // Step 2: Fetch all users and store locations
-        for (String redisKey : activeKeys) {
-            for (GeoLocation<String> location : getAllLocations(redisKey)) {
-                String fullUserId = location.getName();
-                Point point = location.getPoint();
-                userLocations.computeIfAbsent(fullUserId, k -> new HashSet<>()).add(point);
-            }
-        }
-        
-        for (Map.Entry<String, Set<Point>> entry : userLocations.entrySet()) {
+        // One entry per "nearby:" key; a pair seen at several timestamps keeps its first one
+        Map<String, NearbyPair> pairs = new LinkedHashMap<>();
+
+        for (Map.Entry<String, Set<String>> entry : nearbyMembers.entrySet()) {
             String userIdWithTimestamp = entry.getKey();
             String baseUserId = userIdWithTimestamp.split(":")[0]; 
             String baseUserTimestamp = userIdWithTimestamp.split(":")[1]+":"+userIdWithTimestamp.split(":")[2]; // Format: HH:mm            
-            
-            Set<Point> userPoints = entry.getValue();
-            Set<String> nearbyUsers = new HashSet<>();
-         // For tracking new nearby users to notify about
-            Set<String> newNearbyUsers = new HashSet<>();
 
-            for (Point userPoint : userPoints) {
-                // Get geohash of the current user
-                String userGeohash = getGeohash(userPoint);
+            Set<String> nearbyUsers = nearbyUsersMap.computeIfAbsent(baseUserId, k -> new HashSet<>());
+
+            for (String otherUserIdWithTimestamp : entry.getValue()) {
+                String baseOtherUserId = otherUserIdWithTimestamp.split(":")[0];
+                String otherUserTimestamp = otherUserIdWithTimestamp.split(":")[1]+":"+otherUserIdWithTimestamp.split(":")[2];
 
-                // Get all neighboring geohashes
-                Set<String> geohashRegions = getNeighboringGeohashes(userGeohash);
-                geohashRegions.add(userGeohash); // Include current geohash                
-            
-                for (String geohashRegion : geohashRegions) {
-                    // Fetch users from this geohash region
-                	Set<String> regionUsers = getUsersInGeohashRegion(geohashRegion);                	
-                	
-                    if (regionUsers == null) continue; // Skip if no users in this region
-   
-                    for (String otherUserIdWithTimestamp : regionUsers) {
-                    	
-                        String baseOtherUserId = otherUserIdWithTimestamp.split(":")[0];
-                        String otherUserTimestamp = otherUserIdWithTimestamp.split(":")[1]+":"+otherUserIdWithTimestamp.split(":")[2];
-                        
 //                   *********** // here i have to make an extra check whether they are already matched users or ignored one ********* 
-                        if (!baseUserId.equals(baseOtherUserId)) { 
-                            Set<Point> otherUserPoints = userLocations.get(otherUserIdWithTimestamp);
-                            if (otherUserPoints == null) continue;
+                nearbyUsers.add(baseOtherUserId);
+
+                String nearbyKey = "nearby:" + baseUserId + ":" + baseOtherUserId;
+                pairs.computeIfAbsent(nearbyKey, k -> new NearbyPair(baseUserId, baseOtherUserId,
+                        calculateExpiryTime(baseUserTimestamp, otherUserTimestamp)));
+            }
+        }
+
+        if (pairs.isEmpty()) {
+            return nearbyUsersMap;
+        }
 
-                            for (Point otherPoint : otherUserPoints) {
-                                if (calculateDistance(userPoint, otherPoint) <= searchRadiusKm) {
-                                    nearbyUsers.add(baseOtherUserId);                            
-                                    
-                                    // Check if this is a new nearby user
-                                    String nearbyKey = "nearby:" + baseUserId + ":" + baseOtherUserId;
-//                                                      
-                                    Boolean isNew = redisTemplate.opsForValue().setIfAbsent(nearbyKey, "1");
-                                    
-                                    // If we successfully set the key, it's a new nearby user
-                                    if (Boolean.TRUE.equals(isNew)) {
-                                        newNearbyUsers.add(baseOtherUserId);
-                                        long expirySeconds = calculateExpiryTime(baseUserTimestamp, otherUserTimestamp);
-                                        
-//                                        System.out.println(baseUserTimestamp+" "+otherUserTimestamp);
-                                        // Set expiration for the nearby relationship (1 day)
-                                        redisTemplate.expire(nearbyKey, Duration.ofSeconds(expirySeconds));
-                                    }
-                                }
-                            }
-                        }
-                    }
+        // Index entries per user, scored with the same expiry as their keys
+        long nowEpochSeconds = System.currentTimeMillis() / 1000;
+        Map<String, Map<String, Long>> indexEntries = new HashMap<>();
+        for (NearbyPair pair : pairs.values()) {
+            indexEntries.computeIfAbsent(pair.userId, k -> new HashMap<>())
+                    .put(pair.otherUserId, nowEpochSeconds + pair.ttlSeconds());
+        }
+
+        // SET NX EX per key: creates the key and its expiry atomically, and tells us whether it is new.
+        // Pipelined, so the whole sweep costs one round trip instead of two per pair.
+        List<Object> created = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                for (Map.Entry<String, NearbyPair> pair : pairs.entrySet()) {
+                    ops.opsForValue().setIfAbsent(pair.getKey(), "1", Duration.ofSeconds(pair.getValue().ttlSeconds()));
                 }
-                
+                // After the SETs, so the first pairs.size() results are theirs
+                indexEntries.forEach((userId, entries) -> nearbyUserIndex.recordSweep(ops, userId, entries));
+                return null; // Results are collected by executePipelined
             }
-            nearbyUsersMap.put(baseUserId, nearbyUsers);
-            
-            // Send notifications for new nearby users
-            if (!newNearbyUsers.isEmpty()) {
-                sendNearbyUserNotifications(baseUserId, newNearbyUsers);
+        });
+
+        // For tracking new nearby users to notify about
+        Map<String, Set<String>> newNearbyUsers = new LinkedHashMap<>();
+        int i = 0;
+        for (NearbyPair pair : pairs.values()) {
+            // If we successfully set the key, it's a new nearby user
+            if (Boolean.TRUE.equals(created.get(i++))) {
+                newNearbyUsers.computeIfAbsent(pair.userId, k -> new HashSet<>()).add(pair.otherUserId);
             }
         }
 
+        // Send notifications for new nearby users
+        newNearbyUsers.forEach(this::sendNearbyUserNotifications);
+
         return nearbyUsersMap; 
     }
+
+    // A "nearby:<user>:<other>" key to create, with its expiry
+    private static final class NearbyPair {
+        final String userId;
+        final String otherUserId;
+        final long expirySeconds;
+
+        NearbyPair(String userId, String otherUserId, long expirySeconds) {
+            this.userId = userId;
+            this.otherUserId = otherUserId;
+            this.expirySeconds = expirySeconds;
+        }
+
+        long ttlSeconds() {
+            return Math.max(expirySeconds, 1);
+        }
+    }
     
     private void sendNearbyUserNotifications(String userId, Set<String> newNearbyUsers) {
-//    	System.out.print(userId + " ");
-//    	System.out.println(newNearbyUsers);
-    	
     	int size = newNearbyUsers.size();
     	sendPushNotification(userId,"near by found :"+size);
     }
@@ -158,9 +136,6 @@ public class UserLocationService {
         
         // Example implementation:
         try {
-            // Log notification for debugging
-//            System.out.println("Sending notification to user " + userId + ": " + message);
-            
             // TODO: Replace with your actual notification service
             // pushNotificationService.sendNotification(userId, message);
         } catch (Exception e) {
@@ -220,50 +195,4 @@ public class UserLocationService {
         Set<String> nearbyUsers = redisTemplate.opsForSet().members(nearbyListKey);
         return nearbyUsers != null ? nearbyUsers : new HashSet<>();
     }
-    
-	public Set<String> getUsersInGeohashRegion(String geohashRegion) {
-        Set<String> allUsers = new HashSet<>();
-
-        // Get all matching keys for the given geohash region
-        Set<String> matchingKeys = redisTemplate.keys("user_locations:" + geohashRegion + ":*");
-
-        if (matchingKeys != null) {
-            for (String redisKey : matchingKeys) {
-                // Get users from each bucketed key
-                Set<String> users = redisTemplate.opsForZSet().range(redisKey, 0, -1);
-                if (users != null) {
-                    allUsers.addAll(users);
-                }
-            }
-        }
-
-        return allUsers;
-    }
-
-    public Set<String> getNeighboringGeohashes(String geohash) {
-        List<String> neighbors = GeoHash.neighbours(geohash); // Get 8 neighboring geohashes
-        Set<String> geohashRegions = new HashSet<>(neighbors);
-        geohashRegions.add(geohash); // Include the original geohash
-        return geohashRegions;
-    }
-    
-    public String getGeohash(Point point) {
-        return GeoHash.encodeHash(point.getY(), point.getX(), 5); // 5-character precision
-    }
-    
-    // ✅ Calculate Distance Between Two Coordinates (Haversine Formula)
-    private double calculateDistance(Point p1, Point p2) {
-        double lat1 = p1.getX(), lon1 = p1.getY();
-        double lat2 = p2.getX(), lon2 = p2.getY();
-        final int R = 6371; // Earth's radius in km
-
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                        Math.sin(dLon / 2) * Math.sin(dLon / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        
-        return R * c; // Distance in km
-    }
 }
@@ -1,9 +1,9 @@
 package com.example.demo.service;
 
 import java.util.List;
-import java.util.Set;
 
 import com.example.demo.dto.UpdateProfileRequest;
+import com.example.demo.dto.UserCard;
 import com.example.demo.model.User;
 
 import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
@@ -21,7 +21,10 @@ public interface UserService {
      */
     User updateUserProfile(String userId, UpdateProfileRequest request) throws ResourceNotFoundException;
 
-	Set<User> getNearbyUsers(String userId);
+	/**
+	 * Users currently near the given user, as compact cards for the list view.
+	 */
+	List<UserCard> getNearbyUsers(String userId);
 
 	String handleLike(String userId, String likedUserId);
 
@@ -1,7 +1,6 @@
 package com.example.demo.service;
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -15,9 +14,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.example.demo.dto.UpdateProfileRequest;
+import com.example.demo.dto.UserCard;
 import com.example.demo.exception.UserNotFoundException;
 import com.example.demo.model.User;
 import com.example.demo.repository.UserDynamoDbRepository;
+import com.example.demo.security.UserPrincipalCache;
 
 @Service
 public class UserServiceImpl implements UserService {
@@ -28,13 +29,18 @@ public class UserServiceImpl implements UserService {
     private final S3StorageService s3StorageService;
     private final StringRedisTemplate redisTemplate; // Add Redis dependency
     private final RedisTemplate<String, Object> objectRedisTemplate; // For Sorted Sets (matches)
+    private final UserPrincipalCache userPrincipalCache;
+    private final NearbyUserIndex nearbyUserIndex;
 
     
-    public UserServiceImpl(UserDynamoDbRepository userDynamoDbRepository, S3StorageService s3StorageService ,  RedisTemplate<String, Object> objectRedisTemplate , StringRedisTemplate redisTemplate) {
+    public UserServiceImpl(UserDynamoDbRepository userDynamoDbRepository, S3StorageService s3StorageService ,  RedisTemplate<String, Object> objectRedisTemplate , StringRedisTemplate redisTemplate,
+                           UserPrincipalCache userPrincipalCache, NearbyUserIndex nearbyUserIndex) {
         this.userDynamoDbRepository = userDynamoDbRepository;
         this.s3StorageService = s3StorageService;
 		this.redisTemplate = redisTemplate;
 		this.objectRedisTemplate = objectRedisTemplate;
+		this.userPrincipalCache = userPrincipalCache;
+		this.nearbyUserIndex = nearbyUserIndex;
     }
 
     @Override
@@ -81,6 +87,7 @@ public class UserServiceImpl implements UserService {
             // updateTimestamps() should be called within save if defined in repository, or call here
             // user.updateTimestamps(); // If needed here
             userDynamoDbRepository.save(user);
+            userPrincipalCache.invalidate(userId); // Next request reloads the saved user
             log.info("Successfully updated profile (bio/image) for user ID: {}", userId);
         } catch (Exception e) {
              log.error("Failed to save updated user profile to DynamoDB for user {}: {}", userId, e.getMessage(), e);
@@ -92,32 +99,17 @@ public class UserServiceImpl implements UserService {
     
   //New method to get nearby users with full info
     @Override
-    public Set<User> getNearbyUsers(String userId) {
+    public List<UserCard> getNearbyUsers(String userId) {
         try {
-            // Construct the Redis key pattern
         	log.info("userId in service: {}", userId); // ✅ Placeholder with argument
-            String nearbyKeyPattern = "nearby:" + userId + ":*";
-
-            // Fetch all keys matching the pattern
-            Set<String> nearbyKeys = redisTemplate.keys(nearbyKeyPattern);
-            
-            log.info("near by keys :{}" , nearbyKeys);
-
-            // Extract nearby user IDs
-            Set<String> nearbyUserIds = new HashSet<>();
-            if (nearbyKeys != null) {
-                for (String key : nearbyKeys) {
-                    String[] parts = key.split(":");
-                    if (parts.length == 3) { // Ensure key has correct structure
-                        nearbyUserIds.add(parts[2]); // parts[2] is the nearby user ID
-                    }
-                }
-            }
+
+            // The users with a live "nearby:<userId>:<other>" key, from the index instead of a KEYS scan
+            Set<String> nearbyUserIds = nearbyUserIndex.nearbyUserIds(userId);
             log.info("near by User Ids :{}" , nearbyUserIds);
 
             // If no nearby users, return empty set
             if (nearbyUserIds.isEmpty()) {
-                return new HashSet<>();
+                return List.of();
             }
 
             // Fetch full user details from DynamoDB
@@ -128,19 +120,15 @@ public class UserServiceImpl implements UserService {
 //                    nearbyUsers.add(user);
 //                }
 //            }
-            Set<User> nearbyUsers = new HashSet<>();
-            for (String nearbyUserId : nearbyUserIds) {
-                userDynamoDbRepository.findById(nearbyUserId)
-                    .ifPresent(nearbyUsers::add);
-            }
-            
+            // One BatchGetItem per 100 IDs instead of a GetItem per nearby user, card attributes only
+            List<UserCard> nearbyUsers = userDynamoDbRepository.findCardsByIds(nearbyUserIds);
 
             return nearbyUsers;
 
         } catch (Exception e) {
             // Log the error (uncomment and configure logger if needed)
              log.error("Error fetching nearby users for userId: " + userId, e);
-            return new HashSet<>();
+            return List.of();
         }
     }
     
@@ -169,6 +157,8 @@ public class UserServiceImpl implements UserService {
 
         // Step 1: Record the like with a 1-hour expiration updating expiry 
         redisTemplate.opsForValue().set(likeKey, "true", 1, TimeUnit.HOURS);
+        long likeExpiresAt = System.currentTimeMillis() / 1000 + TimeUnit.HOURS.toSeconds(1);
+        nearbyUserIndex.put(userId, likedUserId, likeExpiresAt);
 
         // Step 2: Check if the other user has liked back
         String reverseLike = redisTemplate.opsForValue().get(reverseLikeKey);
@@ -176,6 +166,8 @@ public class UserServiceImpl implements UserService {
 
             // // Delete both keys
             redisTemplate.delete(Arrays.asList(likeKey, reverseLikeKey));
+            nearbyUserIndex.remove(userId, likedUserId);
+            nearbyUserIndex.remove(likedUserId, userId);
             // but key will again be generated if came nearby again 
 
             // Step 3: Mutual like detected, store the match
@@ -194,6 +186,7 @@ public class UserServiceImpl implements UserService {
         } else {
             // updating expiry if someone has liked you 
             redisTemplate.opsForValue().set(reverseLikeKey, "false", 1, TimeUnit.HOURS);
+            nearbyUserIndex.put(likedUserId, userId, likeExpiresAt);
         }
 
         // No match yet
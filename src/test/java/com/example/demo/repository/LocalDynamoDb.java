@@ -0,0 +1,111 @@
+package com.example.demo.repository;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.demo.model.User;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.WriteBatch;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.ResourceInUseException;
+
+/**
+ * A {@link UserDynamoDbRepository} on DynamoDB Local, for the repository benchmarks.
+ * The clients use the pool sizes DynamoDbConfig defaults to.
+ *
+ * The endpoint is -Ddynamodb.endpoint, http://localhost:8000 by default. For example:
+ *
+ * docker run --rm -p 8000:8000 amazon/dynamodb-local -jar DynamoDBLocal.jar -inMemory
+ */
+final class LocalDynamoDb implements AutoCloseable {
+
+    private static final StaticCredentialsProvider CREDENTIALS =
+            StaticCredentialsProvider.create(AwsBasicCredentials.create("local", "local"));
+
+    final DynamoDbClient client;
+    final DynamoDbAsyncClient asyncClient;
+    final UserDynamoDbRepository repository;
+
+    LocalDynamoDb(int batchGetConcurrency) {
+        URI endpoint = URI.create(System.getProperty("dynamodb.endpoint", "http://localhost:8000"));
+        client = DynamoDbClient.builder()
+                .endpointOverride(endpoint)
+                .region(Region.AP_SOUTH_1)
+                .credentialsProvider(CREDENTIALS)
+                .httpClient(ApacheHttpClient.builder().maxConnections(100).build())
+                .build();
+        asyncClient = DynamoDbAsyncClient.builder()
+                .endpointOverride(endpoint)
+                .region(Region.AP_SOUTH_1)
+                .credentialsProvider(CREDENTIALS)
+                .httpClient(NettyNioAsyncHttpClient.builder().maxConcurrency(200)
+                        .connectionAcquisitionTimeout(Duration.ofSeconds(3)).build())
+                .build();
+        try {
+            client.listTables();
+        } catch (SdkClientException e) {
+            close();
+            throw new IllegalStateException("No DynamoDB Local at " + endpoint + "; see LocalDynamoDb", e);
+        }
+        repository = new UserDynamoDbRepository(DynamoDbEnhancedClient.builder().dynamoDbClient(client).build(),
+                DynamoDbEnhancedAsyncClient.builder().dynamoDbClient(asyncClient).build(), asyncClient,
+                new DynamoDbInstrumentation(new SimpleMeterRegistry(), false), batchGetConcurrency);
+    }
+
+    /**
+     * Creates the users table if needed and writes users "bench-user-0" up to count - 1.
+     *
+     * @return Their ids.
+     */
+    List<String> seedUsers(int count) {
+        DynamoDbEnhancedClient enhancedClient = DynamoDbEnhancedClient.builder().dynamoDbClient(client).build();
+        DynamoDbTable<User> table = enhancedClient.table("users", TableSchema.fromBean(User.class));
+        try {
+            table.createTable();
+            client.waiter().waitUntilTableExists(request -> request.tableName("users"));
+        } catch (ResourceInUseException e) {
+            // Left by an earlier run
+        }
+
+        List<String> ids = new ArrayList<>(count);
+        for (int from = 0; from < count; from += 25) {
+            WriteBatch.Builder<User> batch = WriteBatch.builder(User.class).mappedTableResource(table);
+            for (int i = from; i < Math.min(from + 25, count); i++) {
+                User user = new User();
+                user.setUserId("bench-user-" + i);
+                user.setName("Bench User " + i);
+                user.setEmail("bench-user-" + i + "@example.com");
+                user.setProfileImagePath("profiles/bench-user-" + i + ".jpg");
+                user.setDateOfBirthAsLocalDate(LocalDate.of(1990 + i % 15, 1 + i % 12, 1 + i % 28));
+                user.setGender(i % 2 == 0 ? "female" : "male");
+                user.setBio("Likes long walks near Koregaon Park. ".repeat(3));
+                user.setEnabled(true);
+                batch.addPutItem(user);
+                ids.add(user.getUserId());
+            }
+            enhancedClient.batchWriteItem(request -> request.addWriteBatch(batch.build()));
+        }
+        return ids;
+    }
+
+    @Override
+    public void close() {
+        client.close();
+        asyncClient.close();
+    }
+}
@@ -0,0 +1,294 @@
+package com.example.demo.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dto.UserCard;
+import com.example.demo.model.User;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+
+class UserDynamoDbRepositoryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void chunksDistinctKeysIntoBatchesOfAHundred() {
+        StubClient client = StubClient.answering((request, call) -> respond(keysOf(request), List.of()));
+        List<String> ids = ids(250);
+        ids.add("u1"); // duplicate
+        ids.add("missing-1");
+
+        List<User> users = repository(client, 4).findAllByIds(ids);
+
+        List<Integer> sizes = client.requests.stream().map(r -> keysOf(r).size()).sorted().toList();
+        assertThat(sizes).containsExactly(51, 100, 100);
+        Set<String> requested = client.requests.stream().flatMap(r -> keysOf(r).stream()).map(UserDynamoDbRepositoryTest::userId)
+                .collect(Collectors.toSet());
+        assertThat(requested).hasSize(251);
+        assertThat(users).extracting(User::getUserId).doesNotHaveDuplicates().hasSize(250)
+                .doesNotContain("missing-1");
+        assertThat(meterRegistry.get("dynamodb.consumed.capacity").tag("operation", "batchGetItem").counter().count())
+                .isEqualTo(3.0);
+    }
+
+    @Test
+    void retriesUnprocessedKeysUntilAllAreRead() {
+        // The first three calls leave every other key unprocessed
+        StubClient client = StubClient.answering((request, call) -> {
+            List<Map<String, AttributeValue>> keys = keysOf(request);
+            if (call > 3) {
+                return respond(keys, List.of());
+            }
+            List<Map<String, AttributeValue>> processed = new ArrayList<>();
+            List<Map<String, AttributeValue>> unprocessed = new ArrayList<>();
+            for (int i = 0; i < keys.size(); i++) {
+                (i % 2 == 0 ? unprocessed : processed).add(keys.get(i));
+            }
+            return respond(processed, unprocessed);
+        });
+
+        List<User> users = repository(client, 1).findAllByIds(ids(150));
+
+        assertThat(users).extracting(User::getUserId).containsExactlyInAnyOrderElementsOf(ids(150));
+        // One chunk at a time: the first chunk takes four calls (100, 50, 25, 13 keys), the second one
+        assertThat(client.requests).extracting(request -> keysOf(request).size()).containsExactly(100, 50, 25, 13, 50);
+    }
+
+    @Test
+    void retriesKeepTheProjection() {
+        StubClient client = StubClient.answering((request, call) -> call == 1
+                ? respond(List.of(), keysOf(request), request.requestItems().get("users"))
+                : respondCards(keysOf(request)));
+
+        List<UserCard> cards = repository(client, 1).findCardsByIds(List.of("u1", "u2"));
+
+        assertThat(cards).hasSize(2);
+        assertThat(client.requests).hasSize(2).allSatisfy(request -> {
+            KeysAndAttributes keys = request.requestItems().get("users");
+            assertThat(keys.projectionExpression()).contains("#n").doesNotContain("email");
+            assertThat(keys.expressionAttributeNames()).containsEntry("#n", "name");
+        });
+    }
+
+    @Test
+    void givesUpAfterSixAttempts() {
+        StubClient client = StubClient.answering((request, call) -> respond(List.of(), keysOf(request)));
+
+        List<User> users = repository(client, 1).findAllByIds(ids(3));
+
+        assertThat(users).isEmpty();
+        assertThat(client.requests).hasSize(6);
+    }
+
+    @Test
+    void limitsChunksInFlight() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        StubClient client = new StubClient((request, call) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            CompletableFuture<BatchGetItemResponse> response = new CompletableFuture<>();
+            scheduler.schedule(() -> {
+                inFlight.decrementAndGet();
+                response.complete(respond(keysOf(request), List.of()));
+            }, 20, TimeUnit.MILLISECONDS);
+            return response;
+        });
+
+        List<User> users = repository(client, 2).findAllByIds(ids(1000));
+
+        assertThat(users).hasSize(1000);
+        assertThat(client.requests).hasSize(10);
+        assertThat(maxInFlight.get()).isEqualTo(2);
+    }
+
+    @Test
+    void emptyInputMakesNoCalls() {
+        StubClient client = StubClient.answering((request, call) -> respond(List.of(), List.of()));
+        UserDynamoDbRepository repository = repository(client, 4);
+
+        assertThat(repository.findAllByIds(List.of())).isEmpty();
+        assertThat(repository.findAllByIds(null)).isEmpty();
+        assertThat(client.requests).isEmpty();
+    }
+
+    @Test
+    void readsConsistentlyOnlyWhenAsked() {
+        List<GetItemRequest> reads = new CopyOnWriteArrayList<>();
+        DynamoDbClient syncClient = new StubSyncClient() {
+            @Override
+            public GetItemResponse getItem(GetItemRequest request) {
+                reads.add(request);
+                return GetItemResponse.builder().item(request.key()).build();
+            }
+        };
+        StubClient asyncClient = new StubClient((request, call) -> null) {
+            @Override
+            public CompletableFuture<GetItemResponse> getItem(GetItemRequest request) {
+                reads.add(request);
+                return CompletableFuture.completedFuture(GetItemResponse.builder().build()); // Not found
+            }
+        };
+        UserDynamoDbRepository repository = repository(syncClient, asyncClient, 1);
+
+        assertThat(repository.findById("u1")).map(User::getUserId).contains("u1");
+        assertThat(repository.findById("u1", true)).isPresent();
+        assertThat(repository.findByIdAsync("u1").join()).isEmpty();
+        assertThat(repository.findByIdAsync("u1", true).join()).isEmpty();
+
+        assertThat(reads).extracting(GetItemRequest::consistentRead).containsExactly(false, true, false, true);
+        assertThat(reads).allSatisfy(request -> assertThat(request.returnConsumedCapacity())
+                .isEqualTo(ReturnConsumedCapacity.TOTAL));
+    }
+
+    @Test
+    void savesWithoutBlocking() {
+        List<PutItemRequest> writes = new CopyOnWriteArrayList<>();
+        CompletableFuture<PutItemResponse> response = new CompletableFuture<>();
+        StubClient asyncClient = new StubClient((request, call) -> null) {
+            @Override
+            public CompletableFuture<PutItemResponse> putItem(PutItemRequest request) {
+                writes.add(request);
+                return response;
+            }
+        };
+        User user = new User();
+        user.setUserId("u1");
+
+        CompletableFuture<Void> saved = repository(asyncClient, 1).saveAsync(user);
+
+        assertThat(saved).isNotDone();
+        assertThat(writes).singleElement().satisfies(request -> assertThat(request.item())
+                .containsEntry("userId", AttributeValue.fromS("u1")));
+        response.complete(PutItemResponse.builder().build());
+        assertThat(saved).isCompleted();
+        assertThat(meterRegistry.get("dynamodb.operation").tag("operation", "putItem").tag("outcome", "success")
+                .timer().count()).isEqualTo(1);
+    }
+
+    private UserDynamoDbRepository repository(DynamoDbAsyncClient asyncClient, int concurrency) {
+        return repository(new StubSyncClient(), asyncClient, concurrency);
+    }
+
+    private UserDynamoDbRepository repository(DynamoDbClient syncClient, DynamoDbAsyncClient asyncClient, int concurrency) {
+        return new UserDynamoDbRepository(DynamoDbEnhancedClient.builder().dynamoDbClient(syncClient).build(),
+                DynamoDbEnhancedAsyncClient.builder().dynamoDbClient(asyncClient).build(), asyncClient,
+                new DynamoDbInstrumentation(meterRegistry, false), concurrency);
+    }
+
+    private static List<String> ids(int count) {
+        return IntStream.range(0, count).mapToObj(i -> "u" + i).collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private static List<Map<String, AttributeValue>> keysOf(BatchGetItemRequest request) {
+        return request.requestItems().get("users").keys();
+    }
+
+    private static String userId(Map<String, AttributeValue> key) {
+        return key.get("userId").s();
+    }
+
+    // Keys starting with "missing" have no item
+    private static BatchGetItemResponse respond(List<Map<String, AttributeValue>> found,
+                                                List<Map<String, AttributeValue>> unprocessed) {
+        return respond(found, unprocessed, KeysAndAttributes.builder().build());
+    }
+
+    private static BatchGetItemResponse respond(List<Map<String, AttributeValue>> found,
+                                                List<Map<String, AttributeValue>> unprocessed,
+                                                KeysAndAttributes original) {
+        List<Map<String, AttributeValue>> items = found.stream().filter(key -> !userId(key).startsWith("missing")).toList();
+        BatchGetItemResponse.Builder response = BatchGetItemResponse.builder()
+                .responses(Map.of("users", items))
+                .consumedCapacity(ConsumedCapacity.builder().tableName("users").capacityUnits(1.0).build());
+        if (!unprocessed.isEmpty()) {
+            response.unprocessedKeys(Map.of("users", original.toBuilder().keys(unprocessed).build()));
+        }
+        return response.build();
+    }
+
+    private static BatchGetItemResponse respondCards(List<Map<String, AttributeValue>> keys) {
+        List<Map<String, AttributeValue>> items = keys.stream()
+                .map(key -> Map.of("userId", key.get("userId"), "name", AttributeValue.fromS("Name " + userId(key))))
+                .toList();
+        return BatchGetItemResponse.builder().responses(Map.of("users", items)).build();
+    }
+
+    private static class StubSyncClient implements DynamoDbClient {
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // Records every BatchGetItem request and answers it with the given function (call numbers start at 1)
+    private static class StubClient implements DynamoDbAsyncClient {
+
+        final List<BatchGetItemRequest> requests = new CopyOnWriteArrayList<>();
+        private final BiFunction<BatchGetItemRequest, Integer, CompletableFuture<BatchGetItemResponse>> answer;
+
+        StubClient(BiFunction<BatchGetItemRequest, Integer, CompletableFuture<BatchGetItemResponse>> answer) {
+            this.answer = answer;
+        }
+
+        static StubClient answering(BiFunction<BatchGetItemRequest, Integer, BatchGetItemResponse> answer) {
+            return new StubClient((request, call) -> CompletableFuture.completedFuture(answer.apply(request, call)));
+        }
+
+        @Override
+        public synchronized CompletableFuture<BatchGetItemResponse> batchGetItem(BatchGetItemRequest request) {
+            requests.add(request);
+            return answer.apply(request, requests.size());
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.demo.repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.example.demo.dto.UserCard;
+import com.example.demo.model.User;
+
+/**
+ * Hydrating a nearby list against DynamoDB Local: one GetItem per id, as the nearby
+ * endpoint used to, against findCardsByIds' concurrent BatchGetItem chunks.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="UserHydrationBenchmark"
+ *
+ * DynamoDB Local has no network latency to speak of, so the gap here is a floor:
+ * against the real service every sequential GetItem also pays a round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserHydrationBenchmark {
+
+    @Param({"10", "80", "250"})
+    private int nearbyUsers;
+
+    private LocalDynamoDb dynamoDb;
+    private List<String> userIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dynamoDb = new LocalDynamoDb(4);
+        userIds = dynamoDb.seedUsers(nearbyUsers);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dynamoDb.close();
+    }
+
+    @Benchmark
+    public void sequentialGetItem(Blackhole blackhole) {
+        for (String userId : userIds) {
+            Optional<User> user = dynamoDb.repository.findById(userId);
+            blackhole.consume(user);
+        }
+    }
+
+    @Benchmark
+    public List<UserCard> batchGetCards() {
+        return dynamoDb.repository.findCardsByIds(userIds);
+    }
+}
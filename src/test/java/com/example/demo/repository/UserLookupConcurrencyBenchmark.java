@@ -0,0 +1,73 @@
+package com.example.demo.repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.example.demo.model.User;
+
+/**
+ * GetItem throughput against DynamoDB Local: blocking findById one after another on the
+ * Apache client, against findByIdAsync fanned out on the Netty client and joined.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="UserLookupConcurrencyBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserLookupConcurrencyBenchmark {
+
+    private static final int LOOKUPS = 100;
+
+    private LocalDynamoDb dynamoDb;
+    private List<String> userIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dynamoDb = new LocalDynamoDb(4);
+        userIds = dynamoDb.seedUsers(LOOKUPS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dynamoDb.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void syncSequential(Blackhole blackhole) {
+        for (String userId : userIds) {
+            Optional<User> user = dynamoDb.repository.findById(userId);
+            blackhole.consume(user);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void asyncFanOut(Blackhole blackhole) {
+        CompletableFuture<?>[] lookups = userIds.stream()
+                .map(dynamoDb.repository::findByIdAsync)
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(lookups).join();
+        blackhole.consume(lookups);
+    }
+}
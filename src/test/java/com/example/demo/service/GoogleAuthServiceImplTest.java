@@ -0,0 +1,84 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dto.GoogleProfile;
+import com.example.demo.dto.PeopleApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class GoogleAuthServiceImplTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void mapsThePrimaryEntries() throws Exception {
+        GoogleProfile profile = toProfile("""
+                {
+                  "names": [
+                    {"metadata": {"source": {"type": "CONTACT", "id": "c1"}}, "displayName": "Contact Name"},
+                    {"metadata": {"primary": true, "source": {"type": "PROFILE", "id": "p1"}}, "displayName": "Asha Rao"}
+                  ],
+                  "emailAddresses": [
+                    {"metadata": {"source": {"type": "CONTACT", "id": "c1"}}, "value": "old@example.com"},
+                    {"metadata": {"primary": true, "source": {"type": "ACCOUNT", "id": "1234567890"}}, "value": "asha@example.com"}
+                  ],
+                  "photos": [
+                    {"metadata": {"primary": true}, "url": "https://example.com/custom.jpg"},
+                    {"metadata": {}, "url": "https://example.com/default.jpg", "default": true}
+                  ],
+                  "genders": [
+                    {"metadata": {"primary": true}, "value": "female", "formattedValue": "Female"}
+                  ],
+                  "birthdays": [
+                    {"metadata": {"source": {"type": "ACCOUNT"}}, "date": {"month": 6, "day": 1}},
+                    {"metadata": {"source": {"type": "PROFILE"}}, "date": {"year": 1995, "month": 6, "day": 1}}
+                  ]
+                }
+                """);
+
+        assertThat(profile).isEqualTo(new GoogleProfile("1234567890", "asha@example.com", "Asha Rao",
+                "https://example.com/default.jpg", "Female", LocalDate.of(1995, 6, 1)));
+    }
+
+    @Test
+    void fallsBackToTheFirstEntries() throws Exception {
+        GoogleProfile profile = toProfile("""
+                {
+                  "names": [
+                    {"metadata": {"primary": true, "source": {"type": "ACCOUNT", "id": "42"}}, "displayName": "Asha"}
+                  ],
+                  "emailAddresses": [
+                    {"value": "first@example.com"},
+                    {"value": "second@example.com"}
+                  ],
+                  "photos": [
+                    {"metadata": {}, "url": "https://example.com/first.jpg"}
+                  ],
+                  "genders": [
+                    {"value": "female"}
+                  ],
+                  "birthdays": [
+                    {"metadata": {"source": {"type": "ACCOUNT"}}, "date": {"year": 1990, "month": 2, "day": 3}}
+                  ]
+                }
+                """);
+
+        // Google ID from the primary name when no email carries it
+        assertThat(profile).isEqualTo(new GoogleProfile("42", "first@example.com", "Asha",
+                "https://example.com/first.jpg", "female", LocalDate.of(1990, 2, 3)));
+    }
+
+    @Test
+    void leavesMissingFieldsEmpty() throws Exception {
+        assertThat(toProfile("{\"names\": [{\"displayName\": \"Asha\"}], \"emailAddresses\": []}"))
+                .isEqualTo(new GoogleProfile(null, null, "Asha", null, null, null));
+    }
+
+    private GoogleProfile toProfile(String json) throws Exception {
+        return GoogleAuthServiceImpl.toProfile(objectMapper.readValue(json, PeopleApiResponse.class));
+    }
+}
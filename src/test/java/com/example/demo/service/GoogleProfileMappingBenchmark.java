@@ -0,0 +1,80 @@
+package com.example.demo.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.dto.GoogleProfile;
+import com.example.demo.dto.PeopleApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Logins per second through the People API mapping alone: a response with profile,
+ * account and contact sources for every field, reduced to a {@link GoogleProfile}.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="GoogleProfileMappingBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GoogleProfileMappingBenchmark {
+
+    // Primary entries last, so every lookup walks the whole list
+    private static final String RESPONSE = """
+            {
+              "resourceName": "people/1234567890",
+              "etag": "%EgUBAgMEBy4aBAECBQciDGZvbzBiYXIxMjM0NQ==",
+              "names": [
+                {"metadata": {"source": {"type": "CONTACT", "id": "c1"}}, "displayName": "Asha (work)"},
+                {"metadata": {"source": {"type": "CONTACT", "id": "c2"}}, "displayName": "Asha R"},
+                {"metadata": {"primary": true, "source": {"type": "PROFILE", "id": "1234567890"}}, "displayName": "Asha Rao"}
+              ],
+              "emailAddresses": [
+                {"metadata": {"source": {"type": "CONTACT", "id": "c1"}}, "value": "asha@work.example.com"},
+                {"metadata": {"source": {"type": "CONTACT", "id": "c2"}}, "value": "old@example.com"},
+                {"metadata": {"primary": true, "source": {"type": "ACCOUNT", "id": "1234567890"}}, "value": "asha@example.com"}
+              ],
+              "photos": [
+                {"metadata": {"source": {"type": "CONTACT", "id": "c1"}}, "url": "https://example.com/contact.jpg"},
+                {"metadata": {"source": {"type": "PROFILE", "id": "1234567890"}}, "url": "https://example.com/custom.jpg"},
+                {"metadata": {"primary": true, "source": {"type": "PROFILE", "id": "1234567890"}},
+                 "url": "https://example.com/default.jpg", "default": true}
+              ],
+              "genders": [
+                {"metadata": {"source": {"type": "CONTACT", "id": "c1"}}, "value": "unspecified"},
+                {"metadata": {"primary": true, "source": {"type": "PROFILE", "id": "1234567890"}},
+                 "value": "female", "formattedValue": "Female"}
+              ],
+              "birthdays": [
+                {"metadata": {"source": {"type": "CONTACT", "id": "c1"}}, "date": {"month": 6, "day": 1}},
+                {"metadata": {"source": {"type": "ACCOUNT", "id": "1234567890"}}, "date": {"month": 6, "day": 1}},
+                {"metadata": {"primary": true, "source": {"type": "PROFILE", "id": "1234567890"}},
+                 "date": {"year": 1995, "month": 6, "day": 1}}
+              ]
+            }
+            """;
+
+    private PeopleApiResponse person;
+
+    @Setup
+    public void setUp() throws Exception {
+        person = new ObjectMapper().readValue(RESPONSE, PeopleApiResponse.class);
+    }
+
+    @Benchmark
+    public GoogleProfile toProfile() {
+        return GoogleAuthServiceImpl.toProfile(person);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.demo.service;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One proximity sweep over a bucket of users spread uniformly over a city-sized box
+ * (0.5 degrees square around Pune, about 53 x 55 km), sequential against sharded.
+ * "cores" runs the sweep with one worker per available processor.
+ *
+ * Pairs grow with the square of the radius, so at 100k users a 5 km radius yields
+ * hundreds of millions of them and the result maps, not the sweep, dominate. Pass
+ * -p radiusKm=... to try other radii on smaller datasets.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="GridProximityEngineBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GridProximityEngineBenchmark {
+
+    private static final long NOW = 1_710_061_641_123L;
+
+    @Param({ "1", "cores" })
+    public String parallelism;
+
+    @Param({ "10000", "100000" })
+    public int users;
+
+    @Param({ "0.5" })
+    public double radiusKm;
+
+    private GridProximityEngine engine;
+
+    @Setup
+    public void setUp() {
+        engine = new GridProximityEngine("cores".equals(parallelism)
+                ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(parallelism));
+        Random random = new Random(42);
+        for (int i = 0; i < users; i++) {
+            engine.onLocation("user" + i + ":14:35", 18.27 + random.nextDouble() * 0.5,
+                    73.61 + random.nextDouble() * 0.5, NOW);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public Map<String, Set<String>> sweep() {
+        return engine.findNearbyMembers(radiusKm);
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class GridProximityEngineTest {
+
+    private static final double RADIUS_KM = 1.0;
+    private static final long NOW = 1_710_061_641_123L;
+    private static final long BUCKET_MILLIS = 5 * 60 * 1000L;
+
+    private GridProximityEngine engine;
+
+    @AfterEach
+    void shutdown() {
+        if (engine != null) {
+            engine.shutdown();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 4 })
+    void matchesBruteForceOnClusteredPoints(int parallelism) {
+        engine = new GridProximityEngine(parallelism);
+        Random random = new Random(7);
+        List<Point> points = new ArrayList<>();
+        // ~30 km square around Pune: dense enough for many pairs, many cell borders crossed
+        for (int i = 0; i < 3000; i++) {
+            String member = "user" + random.nextInt(1500) + ":14:" + random.nextInt(5);
+            points.add(new Point(member, 18.40 + random.nextDouble() * 0.27, 73.70 + random.nextDouble() * 0.28));
+        }
+        feed(points);
+
+        Map<String, Set<String>> expected = bruteForce(points, RADIUS_KM);
+        assertThat(expected).isNotEmpty();
+        assertThat(engine.findNearbyMembers(RADIUS_KM)).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 4 })
+    void matchesBruteForceAcrossCellEdgesAndTheAntimeridian(int parallelism) {
+        engine = new GridProximityEngine(parallelism);
+        Random random = new Random(11);
+        List<Point> points = new ArrayList<>();
+        // Clustered on a geohash-5 corner, on the equator and on both sides of the antimeridian
+        double cornerLat = 180.0 / (1 << 12) * 2500 - 90.0;
+        double cornerLon = 360.0 / (1 << 13) * 5900 - 180.0;
+        double[][] centres = { { cornerLat, cornerLon }, { 0.0, 10.0 }, { -16.5, 179.998 }, { -16.5, -179.998 } };
+        for (int i = 0; i < 2000; i++) {
+            double[] centre = centres[i % centres.length];
+            double longitude = centre[1] + (random.nextDouble() - 0.5) * 0.03;
+            if (longitude > 180) longitude -= 360;
+            if (longitude < -180) longitude += 360;
+            points.add(new Point("user" + i + ":9:0", centre[0] + (random.nextDouble() - 0.5) * 0.03, longitude));
+        }
+        feed(points);
+
+        Map<String, Set<String>> expected = bruteForce(points, RADIUS_KM);
+        assertThat(expected.keySet()).anyMatch(member -> points.stream()
+                .anyMatch(p -> p.member.equals(member) && p.longitude < -179.99)); // paired across the antimeridian
+        assertThat(engine.findNearbyMembers(RADIUS_KM)).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 4 })
+    void pairsPointsTwoCellsApartWhenTheRadiusIsWiderThanACell(int parallelism) {
+        engine = new GridProximityEngine(parallelism);
+        double cellHeight = 180.0 / (1 << 12);
+        double cellWidth = 360.0 / (1 << 13);
+        // Edges of the cell holding Pune
+        double south = Math.floor((18.5204 + 90.0) / cellHeight) * cellHeight - 90.0;
+        double west = Math.floor((73.8567 + 180.0) / cellWidth) * cellWidth - 180.0;
+        double midLat = south + cellHeight / 2;
+        double midLon = west + cellWidth / 2;
+
+        // Just inside the east edge and just inside the next-but-one column: ~4.7 km apart
+        engine.onLocation("alice:10:0", midLat, west + cellWidth - 0.0005, NOW);
+        engine.onLocation("bob:10:0", midLat, west + 2 * cellWidth + 0.0005, NOW);
+        // Just inside the north edge and just inside the next-but-one row: ~4.95 km apart
+        engine.onLocation("carol:10:0", south + cellHeight - 0.0003, midLon, NOW);
+        engine.onLocation("dave:10:0", south + 2 * cellHeight + 0.0003, midLon, NOW);
+        assertThat(GridProximityEngine.cellOf(midLat, west + 2 * cellWidth + 0.0005)
+                - GridProximityEngine.cellOf(midLat, west + cellWidth - 0.0005)).isEqualTo(2);
+        assertThat(ProximityEngine.distanceKm(south + cellHeight - 0.0003, midLon,
+                south + 2 * cellHeight + 0.0003, midLon)).isBetween(4.9, 5.0);
+
+        Map<String, Set<String>> nearby = engine.findNearbyMembers(5.0);
+
+        assertThat(nearby.get("alice:10:0")).contains("bob:10:0");
+        assertThat(nearby.get("carol:10:0")).contains("dave:10:0");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 4 })
+    void matchesBruteForceWithARadiusOfSeveralCells(int parallelism) {
+        engine = new GridProximityEngine(parallelism);
+        Random random = new Random(13);
+        List<Point> points = new ArrayList<>();
+        // Sparse points over Pune and over Svalbard, where cells are ~1 km wide
+        double[][] centres = { { 18.52, 73.86 }, { 78.22, 15.65 } };
+        for (int i = 0; i < 1500; i++) {
+            double[] centre = centres[i % centres.length];
+            points.add(new Point("user" + i + ":9:0", centre[0] + (random.nextDouble() - 0.5) * 0.5,
+                    centre[1] + (random.nextDouble() - 0.5) * 1.5));
+        }
+        feed(points);
+
+        Map<String, Set<String>> expected = bruteForce(points, 12.0);
+        assertThat(engine.findNearbyMembers(12.0)).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 4 })
+    void neverPairsAUserWithItself(int parallelism) {
+        engine = new GridProximityEngine(parallelism);
+        engine.onLocation("alice:10:0", 18.5204, 73.8567, NOW);
+        engine.onLocation("alice:10:1", 18.5205, 73.8568, NOW);
+        engine.onLocation("bob:10:1", 18.5206, 73.8569, NOW);
+
+        Map<String, Set<String>> nearby = engine.findNearbyMembers(RADIUS_KM);
+
+        assertThat(nearby).containsOnlyKeys("alice:10:0", "alice:10:1", "bob:10:1");
+        assertThat(nearby.get("alice:10:0")).containsExactly("bob:10:1");
+        assertThat(nearby.get("bob:10:1")).containsExactlyInAnyOrder("alice:10:0", "alice:10:1");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 4 })
+    void keepsOnlyTheCurrentBucket(int parallelism) {
+        engine = new GridProximityEngine(parallelism);
+        long bucketStart = NOW - NOW % BUCKET_MILLIS;
+        engine.onLocation("alice:10:0", 18.5204, 73.8567, bucketStart - 1);
+        engine.onLocation("bob:10:0", 18.5205, 73.8567, bucketStart);
+        engine.onLocation("carol:10:0", 18.5206, 73.8567, bucketStart - 1); // late: bucket already passed
+        assertThat(engine.findNearbyMembers(RADIUS_KM)).isEmpty();
+
+        engine.onLocation("dave:10:0", 18.5206, 73.8567, bucketStart + 1);
+        assertThat(engine.findNearbyMembers(RADIUS_KM)).containsOnlyKeys("bob:10:0", "dave:10:0");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 4 })
+    void repeatedMemberMovesInsteadOfDuplicating(int parallelism) {
+        engine = new GridProximityEngine(parallelism);
+        engine.onLocation("alice:10:0", 18.5204, 73.8567, NOW);
+        engine.onLocation("bob:10:0", 19.0760, 72.8777, NOW); // Mumbai
+        assertThat(engine.findNearbyMembers(RADIUS_KM)).isEmpty();
+
+        engine.onLocation("bob:10:0", 18.5205, 73.8567, NOW);
+        assertThat(engine.findNearbyMembers(RADIUS_KM)).containsOnlyKeys("alice:10:0", "bob:10:0");
+    }
+
+    private void feed(List<Point> points) {
+        for (Point point : points) {
+            engine.onLocation(point.member, point.latitude, point.longitude, NOW);
+        }
+    }
+
+    // Last position per member, as the engine (and GEOADD) keep it, then every pair checked
+    private static Map<String, Set<String>> bruteForce(List<Point> points, double radiusKm) {
+        Map<String, Point> latest = new HashMap<>();
+        for (Point point : points) {
+            latest.put(point.member, point);
+        }
+        List<Point> unique = new ArrayList<>(latest.values());
+        Map<String, Set<String>> nearby = new HashMap<>();
+        for (int i = 0; i < unique.size(); i++) {
+            for (int j = i + 1; j < unique.size(); j++) {
+                Point a = unique.get(i);
+                Point b = unique.get(j);
+                if (a.userId().equals(b.userId())) continue;
+                if (ProximityEngine.distanceKm(a.latitude, a.longitude, b.latitude, b.longitude) <= radiusKm) {
+                    nearby.computeIfAbsent(a.member, k -> new HashSet<>()).add(b.member);
+                    nearby.computeIfAbsent(b.member, k -> new HashSet<>()).add(a.member);
+                }
+            }
+        }
+        return nearby;
+    }
+
+    private record Point(String member, double latitude, double longitude) {
+        String userId() {
+            return member.split(":")[0];
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.demo.service;
+
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.service.JwtTokenProvider.TokenVerification;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Per-request cost of checking the JWT cookie: the old path (a parser built per call,
+ * the token verified twice), one verification with the shared parser, and a repeat
+ * served from the verified-token cache.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="JwtTokenProviderBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+
+    private static final byte[] KEY = "0123456789abcdef0123456789abcdef0123456789abcdef".getBytes();
+
+    private SecretKey key;
+    private JwtTokenProvider provider;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        key = Keys.hmacShaKeyFor(KEY);
+        provider = new JwtTokenProvider(Base64.getEncoder().encodeToString(KEY), 3_600_000, 10_000, 300,
+                new SimpleMeterRegistry());
+        token = provider.generateToken(JwtTokenProviderTest.user("3f2b8c1e-9a4d-4e7b-8c2f-1d5e6a7b8c9d", true));
+        provider.verifyToken(token); // Cached from here on
+    }
+
+    // validateToken followed by getUserIdFromJWT, each building its own parser
+    @Benchmark
+    public String validateThenParse() {
+        Jwts.parser().verifyWith(key).build().parseSignedClaims(token);
+        return Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload().getSubject();
+    }
+
+    @Benchmark
+    public Claims verifyOnce() {
+        return provider.getClaimsFromJWT(token);
+    }
+
+    @Benchmark
+    public TokenVerification verifyCached() {
+        return provider.verifyToken(token);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Base64;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.model.User;
+import com.example.demo.service.JwtTokenProvider.TokenFailure;
+import com.example.demo.service.JwtTokenProvider.TokenVerification;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class JwtTokenProviderTest {
+
+    private static final byte[] KEY = "0123456789abcdef0123456789abcdef0123456789abcdef".getBytes();
+    private static final String SECRET = Base64.getEncoder().encodeToString(KEY);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JwtTokenProvider provider = new JwtTokenProvider(SECRET, 60_000, 100, 300, meterRegistry);
+
+    @Test
+    void verifiesIssuedTokensOnceAndServesRepeatsFromTheCache() {
+        String token = provider.generateToken(user("user-1", true));
+
+        TokenVerification first = provider.verifyToken(token);
+        TokenVerification second = provider.verifyToken(token);
+
+        assertThat(first.isValid()).isTrue();
+        assertThat(first.getClaims().getSubject()).isEqualTo("user-1");
+        assertThat(first.getClaims().get(JwtTokenProvider.EMAIL_CLAIM, String.class)).isEqualTo("user-1@example.com");
+        assertThat(first.getClaims().get(JwtTokenProvider.ENABLED_CLAIM, Boolean.class)).isTrue();
+        assertThat(second.getClaims()).isSameAs(first.getClaims());
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "verifiedTokens").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void carriesTheEnabledClaim() {
+        String token = provider.generateToken(user("user-2", false));
+
+        assertThat(provider.verifyToken(token).getClaims().get(JwtTokenProvider.ENABLED_CLAIM, Boolean.class)).isFalse();
+    }
+
+    @Test
+    void rejectsExpiredTokens() {
+        String token = Jwts.builder().subject("user-1")
+                .expiration(new Date(System.currentTimeMillis() - 1_000))
+                .signWith(Keys.hmacShaKeyFor(KEY))
+                .compact();
+
+        assertThat(provider.verifyToken(token).getFailure()).isEqualTo(TokenFailure.EXPIRED);
+    }
+
+    @Test
+    void rejectsTokensSignedWithAnotherKey() {
+        String token = Jwts.builder().subject("user-1")
+                .signWith(Keys.hmacShaKeyFor("another-key-another-key-another-key-another-key".getBytes()))
+                .compact();
+
+        assertThat(provider.verifyToken(token).getFailure()).isEqualTo(TokenFailure.INVALID_SIGNATURE);
+    }
+
+    @Test
+    void rejectsMalformedAndEmptyTokens() {
+        assertThat(provider.verifyToken("not.a.jwt").isValid()).isFalse();
+        assertThat(provider.verifyToken("").getFailure()).isEqualTo(TokenFailure.EMPTY);
+        assertThat(provider.verifyToken(null).getFailure()).isEqualTo(TokenFailure.EMPTY);
+    }
+
+    @Test
+    void doesNotCacheRejections() {
+        String token = Jwts.builder().subject("user-1")
+                .signWith(Keys.hmacShaKeyFor("another-key-another-key-another-key-another-key".getBytes()))
+                .compact();
+
+        provider.verifyToken(token);
+        provider.verifyToken(token);
+
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "verifiedTokens").tag("result", "hit")
+                .functionCounter().count()).isZero();
+    }
+
+    static User user(String userId, boolean enabled) {
+        User user = new User();
+        user.setUserId(userId);
+        user.setEmail(userId + "@example.com");
+        user.setEnabled(enabled);
+        return user;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.data.geo.Point;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnection.PipeliningFlushPolicy;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+
+import com.example.demo.dto.LocationMessage;
+import com.github.davidmoten.geo.GeoHash;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Location records per second written to a real Redis: one poll's batch through the
+ * old path (EXISTS, GEOADD and EXPIRE per record, each its own round trip) against
+ * bulkUpdateRedis, which groups the batch by key and sends it as one pipelined
+ * MULTI/EXEC, flushed once as RedisConfig sets up Lettuce.
+ *
+ * Needs a scratch Redis, by default on localhost:6379; keys are written with their usual
+ * one-hour expiry. For example:
+ *
+ * docker run --rm -p 6379:6379 redis:7
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="KafkaPollingServiceRedisBenchmark -jvmArgsAppend -Dredis.port=6379"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KafkaPollingServiceRedisBenchmark {
+
+    // max.poll.records default
+    private static final int BATCH_SIZE = 500;
+
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+    private KafkaPollingService service;
+    private List<LocationMessage> batch;
+
+    @Setup
+    public void setUp() {
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(
+                System.getProperty("redis.host", "localhost"), Integer.getInteger("redis.port", 6379)));
+        connectionFactory.setPipeliningFlushPolicy(PipeliningFlushPolicy.flushOnClose());
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+        try {
+            redisTemplate.execute(connection -> connection.ping(), true);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("No Redis on " + connectionFactory.getHostName() + ":"
+                    + connectionFactory.getPort() + "; see the class comment", e);
+        }
+
+        // The consumers are created but never polled, so no Kafka broker is needed
+        DefaultKafkaConsumerFactory<String, String> consumerFactory = new DefaultKafkaConsumerFactory<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092",
+                ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
+                ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class));
+        service = new KafkaPollingService(consumerFactory, redisTemplate, new LocationBucketIndex(redisTemplate),
+                radiusKm -> Map.of(), new SimpleMeterRegistry(), 1, 1, 100, new StandardEnvironment());
+
+        // One city's worth of users, a minute old, so every record lands in a live bucket
+        Random random = new Random(42);
+        long userMillis = System.currentTimeMillis() - 60_000;
+        batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            LocationMessage message = new LocationMessage();
+            message.setUserId("bench-user-" + i);
+            message.setLatitude(18.27 + random.nextDouble() * 0.5);
+            message.setLongitude(73.61 + random.nextDouble() * 0.5);
+            message.setUserEpochMillis(userMillis);
+            batch.add(message);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        connectionFactory.destroy();
+    }
+
+    // The path bulkUpdateRedis replaced
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void perRecordRoundTrips() {
+        for (LocationMessage message : batch) {
+            String timeBucket = KafkaPollingService.get5MinTimeBucket(message.getUserEpochMillis());
+            String key = LocationBucketIndex.locationKey(
+                    GeoHash.encodeHash(message.getLatitude(), message.getLongitude(), 5), timeBucket);
+            boolean isNewKey = !Boolean.TRUE.equals(redisTemplate.hasKey(key));
+            redisTemplate.opsForGeo().add(key, new Point(message.getLongitude(), message.getLatitude()),
+                    message.getUserId() + ":" + timeBucket);
+            if (isNewKey) {
+                redisTemplate.expire(key, Duration.ofHours(1));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void pipelinedBatch() {
+        service.bulkUpdateRedis(batch);
+    }
+}
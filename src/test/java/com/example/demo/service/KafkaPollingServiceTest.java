@@ -0,0 +1,189 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.data.geo.Point;
+import org.springframework.data.redis.core.GeoOperations;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.kafka.core.ConsumerFactory;
+
+import com.example.demo.dto.LocationMessage;
+import com.github.davidmoten.geo.GeoHash;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class KafkaPollingServiceTest {
+
+    private static final ZoneId IST_ZONE = ZoneId.of("Asia/Kolkata");
+
+    @SuppressWarnings("unchecked")
+    private final ConsumerFactory<String, String> consumerFactory = mock(ConsumerFactory.class);
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final RedisOperations<String, String> ops = mock(RedisOperations.class);
+    @SuppressWarnings("unchecked")
+    private final GeoOperations<String, String> geoOps = mock(GeoOperations.class);
+    private final ProximityEngine proximityEngine = mock(ProximityEngine.class);
+
+    private KafkaPollingService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        doReturn(mock(KafkaConsumer.class)).when(consumerFactory)
+                .createConsumer(anyString(), isNull(), anyString(), any(Properties.class));
+        when(ops.opsForGeo()).thenReturn(geoOps);
+        when(ops.opsForZSet()).thenReturn(mock(ZSetOperations.class));
+        when(ops.opsForSet()).thenReturn(mock(SetOperations.class));
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(invocation -> {
+            invocation.<SessionCallback<Object>>getArgument(0).execute(ops);
+            return List.of();
+        });
+        service = new KafkaPollingService(consumerFactory, redisTemplate, new LocationBucketIndex(redisTemplate),
+                proximityEngine, new SimpleMeterRegistry(), 2, 4, 100, new StandardEnvironment());
+    }
+
+    @Test
+    void consumersCommitManually() {
+        ArgumentCaptor<Properties> overrides = ArgumentCaptor.forClass(Properties.class);
+        verify(consumerFactory, times(2))
+                .createConsumer(eq("my-group"), isNull(), anyString(), overrides.capture());
+
+        assertThat(overrides.getValue()).containsEntry(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void writesABatchInOneTransactionGroupedByKey() {
+        long userMillis = System.currentTimeMillis() - 60_000;
+        String geohash = GeoHash.encodeHash(18.5204, 73.8567, 5);
+        String key = LocationBucketIndex.locationKey(geohash, KafkaPollingService.get5MinTimeBucket(userMillis));
+        int minuteOfDay = KafkaPollingService.istMinuteOfDay(userMillis);
+        String suffix = ":" + minuteOfDay / 60 + ":" + minuteOfDay % 60;
+
+        service.bulkUpdateRedis(List.of(
+                message("alice", 18.5204, 73.8567, userMillis),
+                message("bob", 18.5205, 73.8568, userMillis),
+                message("stale", 18.5204, 73.8567, userMillis - 2 * 3600_000),
+                message("future", 18.5204, 73.8567, userMillis + 120_000)));
+
+        ArgumentCaptor<Map<String, Point>> members = ArgumentCaptor.forClass(Map.class);
+        InOrder order = inOrder(ops, geoOps);
+        order.verify(ops).multi();
+        order.verify(geoOps).add(eq(key), members.capture());
+        order.verify(ops).expireAt(key, Instant.ofEpochSecond(KafkaPollingService.bucketExpiryEpochSeconds(userMillis)));
+        order.verify(ops).exec();
+        assertThat(members.getValue()).containsOnlyKeys("alice" + suffix, "bob" + suffix);
+
+        verify(proximityEngine).onLocation("alice" + suffix, 18.5204, 73.8567, userMillis);
+        verify(proximityEngine).onLocation("bob" + suffix, 18.5205, 73.8568, userMillis);
+        verifyNoMoreInteractions(proximityEngine);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void skipsTheRedisRoundTripWhenNothingIsAccepted() {
+        service.bulkUpdateRedis(List.of(message("stale", 18.5, 73.8, System.currentTimeMillis() - 2 * 3600_000)));
+
+        verify(redisTemplate, never()).executePipelined(any(SessionCallback.class));
+    }
+
+    @Test
+    void parsesJsonTimesToEpochMillisAndRejectsOutOfRangeCoordinates() {
+        String dateTime = "2024-03-10T14:37:21.123+05:30[Asia/Kolkata]";
+        LocationMessage parsed = service.parseMessage(json("alice", 18.5, 73.8, dateTime));
+        assertThat(parsed.getUserEpochMillis()).isEqualTo(ZonedDateTime.parse(dateTime).toInstant().toEpochMilli());
+
+        assertThatThrownBy(() -> service.parseMessage(json("alice", 91, 73.8, dateTime)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.parseMessage(json("alice", 18.5, -180.5, dateTime)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.parseMessage(json("alice", 18.5, 73.8, "yesterday")))
+                .isInstanceOf(RuntimeException.class);
+    }
+
+    private static LocationMessage message(String userId, double latitude, double longitude, long epochMillis) {
+        LocationMessage message = new LocationMessage();
+        message.setUserId(userId);
+        message.setLatitude(latitude);
+        message.setLongitude(longitude);
+        message.setUserEpochMillis(epochMillis);
+        return message;
+    }
+
+    private static byte[] json(String userId, double latitude, double longitude, String userDateTime) {
+        return ("{\"userId\":\"" + userId + "\",\"latitude\":" + latitude + ",\"longitude\":" + longitude
+                + ",\"userDateTime\":\"" + userDateTime + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void bucketOfEpochMillisMatchesIstDateTime() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            long epochMillis = 1_700_000_000_000L + (long) (random.nextDouble() * 400L * 24 * 3600 * 1000);
+            ZonedDateTime ist = Instant.ofEpochMilli(epochMillis).atZone(IST_ZONE);
+
+            assertThat(KafkaPollingService.get5MinTimeBucket(epochMillis))
+                    .isEqualTo(KafkaPollingService.get5MinTimeBucket(ist));
+            assertThat(KafkaPollingService.istMinuteOfDay(epochMillis))
+                    .isEqualTo(ist.getHour() * 60 + ist.getMinute());
+        }
+    }
+
+    @Test
+    void bucketLabelsAreFlooredToFiveMinutesInIst() {
+        // 2024-03-10T23:59:59.999Z is 05:29:59.999 IST
+        assertThat(KafkaPollingService.get5MinTimeBucket(Instant.parse("2024-03-10T23:59:59.999Z").toEpochMilli()))
+                .isEqualTo("05:25");
+        // 18:30Z is IST midnight
+        assertThat(KafkaPollingService.get5MinTimeBucket(Instant.parse("2024-03-10T18:30:00Z").toEpochMilli()))
+                .isEqualTo("00:00");
+        assertThat(KafkaPollingService.get5MinTimeBucket(Instant.parse("2024-03-10T18:29:59Z").toEpochMilli()))
+                .isEqualTo("23:55");
+    }
+
+    @Test
+    void bucketExpiresOneHourAfterItsIstStart() {
+        long bucketStart = ZonedDateTime.parse("2024-03-10T14:35:00+05:30[Asia/Kolkata]").toEpochSecond();
+
+        for (long offsetMillis : new long[] { 0, 1, 299_999 }) {
+            assertThat(KafkaPollingService.bucketExpiryEpochSeconds(bucketStart * 1000 + offsetMillis))
+                    .isEqualTo(bucketStart + 3600);
+        }
+        assertThat(KafkaPollingService.bucketExpiryEpochSeconds(bucketStart * 1000 + 300_000))
+                .isEqualTo(bucketStart + 300 + 3600);
+    }
+}
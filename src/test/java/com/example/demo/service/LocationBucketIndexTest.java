@@ -0,0 +1,84 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+class LocationBucketIndexTest {
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ZSetOperations<String, String> zSetOps = mock(ZSetOperations.class);
+    @SuppressWarnings("unchecked")
+    private final SetOperations<String, String> setOps = mock(SetOperations.class);
+
+    private final LocationBucketIndex index = new LocationBucketIndex(redisTemplate);
+
+    @BeforeEach
+    void stubOperations() {
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOps);
+        when(redisTemplate.opsForSet()).thenReturn(setOps);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordScoresBucketsAndCellKeysByExpiryAndTrimsExpiredCellKeys() {
+        RedisOperations<String, String> ops = mock(RedisOperations.class);
+        when(ops.opsForZSet()).thenReturn(zSetOps);
+        when(ops.opsForSet()).thenReturn(setOps);
+        long expiresAt = Instant.now().getEpochSecond() + 1800;
+
+        index.record(ops, "tek5y", "14:35", expiresAt);
+
+        verify(zSetOps).add(LocationBucketIndex.ACTIVE_BUCKETS_KEY, "14:35", expiresAt);
+        verify(setOps).add("location_index:bucket:14:35", "tek5y");
+        verify(ops).expireAt("location_index:bucket:14:35", Instant.ofEpochSecond(expiresAt));
+        verify(zSetOps).add("location_index:cell_keys:tek5y", "user_locations:tek5y:14:35", expiresAt);
+        ArgumentCaptor<Double> trimmedUpTo = ArgumentCaptor.forClass(Double.class);
+        verify(zSetOps).removeRangeByScore(eq("location_index:cell_keys:tek5y"), eq(Double.NEGATIVE_INFINITY),
+                trimmedUpTo.capture());
+        assertThat(trimmedUpTo.getValue()).isBetween(expiresAt - 1800.0 - 5, expiresAt - 1800.0 + 5); // now
+        verify(ops).expire(LocationBucketIndex.ACTIVE_BUCKETS_KEY, Duration.ofHours(1));
+        verify(ops).expire("location_index:cell_keys:tek5y", Duration.ofHours(1));
+    }
+
+    @Test
+    void activeLocationKeysCombineLiveBucketsWithTheirCells() {
+        when(zSetOps.rangeByScore(eq(LocationBucketIndex.ACTIVE_BUCKETS_KEY), anyDouble(), eq(Double.POSITIVE_INFINITY)))
+                .thenReturn(Set.of("14:30", "14:35"));
+        when(setOps.members("location_index:bucket:14:30")).thenReturn(Set.of("tek5y"));
+        when(setOps.members("location_index:bucket:14:35")).thenReturn(Set.of("tek5y", "tek5z"));
+
+        assertThat(index.activeLocationKeys()).containsExactlyInAnyOrder(
+                "user_locations:tek5y:14:30", "user_locations:tek5y:14:35", "user_locations:tek5z:14:35");
+    }
+
+    @Test
+    void readsOnlyUnexpiredEntries() {
+        long now = Instant.now().getEpochSecond();
+        ArgumentCaptor<Double> from = ArgumentCaptor.forClass(Double.class);
+        when(zSetOps.rangeByScore(eq("location_index:cell_keys:tek5y"), from.capture(), eq(Double.POSITIVE_INFINITY)))
+                .thenReturn(Set.of("user_locations:tek5y:14:35"));
+
+        assertThat(index.locationKeysForCell("tek5y")).containsExactly("user_locations:tek5y:14:35");
+        assertThat(from.getValue()).isBetween((double) now, (double) now + 5);
+
+        assertThat(index.locationKeysForCell("nothing")).isEmpty();
+        assertThat(index.activeLocationKeys()).isEmpty();
+    }
+}
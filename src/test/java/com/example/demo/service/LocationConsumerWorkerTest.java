@@ -0,0 +1,116 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import com.example.demo.dto.LocationMessage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@Timeout(30)
+class LocationConsumerWorkerTest {
+
+    private static final String TOPIC = "user-locations";
+    private static final TopicPartition P0 = new TopicPartition(TOPIC, 0);
+    private static final TopicPartition P1 = new TopicPartition(TOPIC, 1);
+
+    private final MockConsumer<String, byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    private final List<String> written = new CopyOnWriteArrayList<>();
+    private final CountDownLatch writerBusy = new CountDownLatch(1);
+    private final CountDownLatch releaseWriter = new CountDownLatch(1);
+
+    @Test
+    void partitionsAssignedWhileTheQueueIsFullStartPausedInsteadOfBlockingThePoll() throws Exception {
+        consumer.updateBeginningOffsets(Map.of(P0, 0L, P1, 0L));
+        AtomicReference<Set<TopicPartition>> pausedAfterAssignment = new AtomicReference<>();
+        AtomicBoolean drained = new AtomicBoolean();
+
+        // Poll tasks run one per poll() on the consumer thread
+        consumer.schedulePollTask(() -> {
+            consumer.rebalance(List.of(P0));
+            consumer.addRecord(record(P0, 0, "a"));
+        });
+        // "a" taken by the writer, which now hangs on Redis. P0 may have been paused before that
+        // and is resumed before the next poll; rebalance() drops records a paused partition held back.
+        consumer.schedulePollTask(() -> await(writerBusy));
+        consumer.schedulePollTask(() -> consumer.addRecord(record(P0, 1, "b"))); // Fills the one-batch queue
+        consumer.schedulePollTask(() -> {
+            consumer.rebalance(List.of(P0, P1));
+            consumer.addRecord(record(P1, 0, "c"));
+        });
+        consumer.schedulePollTask(() -> {
+            pausedAfterAssignment.set(Set.copyOf(consumer.paused()));
+            releaseWriter.countDown();
+        });
+        consumer.schedulePollTask(() -> {
+        });
+        consumer.schedulePollTask(() -> {
+            // The queue has room again: everything resumed, so the paused record can be fetched
+            consumer.addRecord(record(P1, 0, "c"));
+        });
+        consumer.schedulePollTask(() -> drained.set(true));
+
+        LocationConsumerWorker worker = worker();
+        worker.start();
+        Map<TopicPartition, OffsetAndMetadata> committed;
+        while (!drained.get() || (committed = consumer.committed(Set.of(P0, P1))).size() < 2) {
+            Thread.sleep(10);
+        }
+        worker.stop();
+
+        assertThat(pausedAfterAssignment.get()).contains(P1);
+        assertThat(written).containsExactly("a", "b", "c");
+        assertThat(committed)
+                .containsEntry(P0, new OffsetAndMetadata(2))
+                .containsEntry(P1, new OffsetAndMetadata(1));
+    }
+
+    private LocationConsumerWorker worker() {
+        return new LocationConsumerWorker("location-consumer-0", TOPIC, consumer,
+                bytes -> message(new String(bytes, StandardCharsets.UTF_8)),
+                messages -> {
+                    writerBusy.countDown();
+                    await(releaseWriter);
+                    messages.forEach(message -> written.add(message.getUserId()));
+                },
+                1, Duration.ofMillis(10), Thread::new, new SimpleMeterRegistry());
+    }
+
+    private static ConsumerRecord<String, byte[]> record(TopicPartition partition, long offset, String userId) {
+        return new ConsumerRecord<>(partition.topic(), partition.partition(), offset, null,
+                userId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static LocationMessage message(String userId) {
+        LocationMessage message = new LocationMessage();
+        message.setUserId(userId);
+        return message;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.demo.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.dto.LocationMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Records per second through each way of reading and writing a location update: the
+ * streaming JSON reader and the binary format against Jackson data binding. The
+ * consumer used to build a new ObjectMapper for every record, which
+ * decodeJsonNewMapperPerRecord reproduces; the shared-mapper case is the cheapest
+ * data-binding alternative.
+ *
+ * With -prof gc, gc.alloc.rate.norm gives the bytes allocated per record. The setup
+ * prints the size of the record in each format.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="LocationMessageCodecBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocationMessageCodecBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private LocationMessage message;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() throws Exception {
+        message = new LocationMessage();
+        message.setUserId("3f2b8c1e-9a4d-4e7b-8c2f-1d5e6a7b8c9d");
+        message.setLatitude(18.5204303);
+        message.setLongitude(73.8567437);
+        message.setUserDateTime("2024-03-10T14:37:21.123+05:30[Asia/Kolkata]");
+        message.setUserEpochMillis(1_710_061_641_123L);
+
+        json = ("{\"userId\":\"" + message.getUserId() + "\",\"latitude\":" + message.getLatitude()
+                + ",\"longitude\":" + message.getLongitude() + ",\"userDateTime\":\"" + message.getUserDateTime() + "\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        binary = LocationMessageCodec.encodeBinary(message);
+        System.out.printf("Record size: %d bytes as JSON, %d bytes binary%n",
+                objectMapper.writeValueAsBytes(message).length, binary.length);
+    }
+
+    // The old consumer path: StringDeserializer, then a fresh ObjectMapper per record
+    @Benchmark
+    public LocationMessage decodeJsonNewMapperPerRecord() throws Exception {
+        return new ObjectMapper().readValue(new String(json, StandardCharsets.UTF_8), LocationMessage.class);
+    }
+
+    @Benchmark
+    public LocationMessage decodeJsonDataBinding() throws Exception {
+        return objectMapper.readValue(json, LocationMessage.class);
+    }
+
+    @Benchmark
+    public LocationMessage decodeJson() {
+        return LocationMessageCodec.decode(json);
+    }
+
+    @Benchmark
+    public LocationMessage decodeBinary() {
+        return LocationMessageCodec.decode(binary);
+    }
+
+    @Benchmark
+    public byte[] encodeJsonDataBinding() throws Exception {
+        return objectMapper.writeValueAsBytes(message);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return LocationMessageCodec.encodeBinary(message);
+    }
+}
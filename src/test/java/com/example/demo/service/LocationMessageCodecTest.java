@@ -0,0 +1,222 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.example.demo.dto.LocationMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class LocationMessageCodecTest {
+
+    private static final String USER_ID = "3f2b8c1e-9a4d-4e7b-8c2f-1d5e6a7b8c9d";
+    private static final String USER_DATE_TIME = "2024-03-10T14:37:21.123+05:30[Asia/Kolkata]";
+
+    @Test
+    void decodesJson() {
+        LocationMessage message = LocationMessageCodec.decodeJson("{\"userId\":\"" + USER_ID + "\","
+                + "\"latitude\":18.5204303,\"longitude\":73.8567437,\"userDateTime\":\"" + USER_DATE_TIME + "\"}");
+
+        assertThat(message.getUserId()).isEqualTo(USER_ID);
+        assertThat(message.getLatitude()).isEqualTo(18.5204303);
+        assertThat(message.getLongitude()).isEqualTo(73.8567437);
+        assertThat(message.getUserDateTime()).isEqualTo(USER_DATE_TIME);
+    }
+
+    @Test
+    void decodesJsonBytesThroughDecode() {
+        String json = "{\"userDateTime\":\"" + USER_DATE_TIME + "\",\"longitude\":73,\"latitude\":-18.5,"
+                + "\"userId\":\"u1\"}";
+
+        LocationMessage message = LocationMessageCodec.decode(json.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(message.getUserId()).isEqualTo("u1");
+        assertThat(message.getLatitude()).isEqualTo(-18.5);
+        assertThat(message.getLongitude()).isEqualTo(73.0);
+    }
+
+    @Test
+    void skipsUnknownFields() {
+        LocationMessage message = LocationMessageCodec.decodeJson("{\"accuracy\":{\"m\":[5,6]},\"userId\":\"u1\","
+                + "\"latitude\":1.5,\"extra\":null,\"longitude\":2.5,\"userDateTime\":\"" + USER_DATE_TIME + "\"}");
+
+        assertThat(message.getUserId()).isEqualTo("u1");
+        assertThat(message.getLatitude()).isEqualTo(1.5);
+        assertThat(message.getLongitude()).isEqualTo(2.5);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "\"18.5\"", // numeric string
+            "\"north\"",
+            "true",
+            "null",
+            "{}",
+            "[18.5]",
+    })
+    void rejectsNonNumericLatitude(String latitude) {
+        String json = "{\"userId\":\"u1\",\"latitude\":" + latitude + ",\"longitude\":73.8,"
+                + "\"userDateTime\":\"" + USER_DATE_TIME + "\"}";
+
+        assertThatThrownBy(() -> LocationMessageCodec.decodeJson(json))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsNonNumericLongitude() {
+        String json = "{\"userId\":\"u1\",\"latitude\":18.5,\"longitude\":\"abc\","
+                + "\"userDateTime\":\"" + USER_DATE_TIME + "\"}";
+
+        assertThatThrownBy(() -> LocationMessageCodec.decodeJson(json))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("longitude");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "userId", "latitude", "longitude", "userDateTime" })
+    void rejectsMissingField(String missing) {
+        StringBuilder json = new StringBuilder("{");
+        if (!missing.equals("userId")) json.append("\"userId\":\"u1\",");
+        if (!missing.equals("latitude")) json.append("\"latitude\":18.5,");
+        if (!missing.equals("longitude")) json.append("\"longitude\":73.8,");
+        if (!missing.equals("userDateTime")) json.append("\"userDateTime\":\"").append(USER_DATE_TIME).append("\",");
+        json.setLength(json.length() - 1);
+        json.append('}');
+
+        assertThatThrownBy(() -> LocationMessageCodec.decodeJson(json.toString()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("missing fields");
+    }
+
+    @Test
+    void rejectsNonStringUserId() {
+        String json = "{\"userId\":42,\"latitude\":18.5,\"longitude\":73.8,\"userDateTime\":\"" + USER_DATE_TIME + "\"}";
+
+        assertThatThrownBy(() -> LocationMessageCodec.decodeJson(json))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "", "[]", "\"text\"", "{\"userId\":\"u1\"", "{\"userId\":\"u1\",\"latitude\":1e999}", "not json" })
+    void rejectsMalformedJson(String json) {
+        assertThatThrownBy(() -> LocationMessageCodec.decodeJson(json))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsEmptyPayload() {
+        assertThatThrownBy(() -> LocationMessageCodec.decode(new byte[0]))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LocationMessageCodec.decode(null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void binaryRoundTripWithUuidUserId() {
+        LocationMessage message = message(USER_ID, 18.5204303, 73.8567437);
+        message.setUserEpochMillis(1_710_061_641_123L);
+
+        byte[] payload = LocationMessageCodec.encodeBinary(message);
+        LocationMessage decoded = LocationMessageCodec.decode(payload);
+
+        assertThat(payload).hasSize(34);
+        assertThat(decoded.getUserId()).isEqualTo(USER_ID);
+        assertThat(decoded.getLatitude()).isEqualTo(18.5204303);
+        assertThat(decoded.getLongitude()).isEqualTo(73.8567437);
+        assertThat(decoded.getUserEpochMillis()).isEqualTo(1_710_061_641_123L);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "google-1234567890", "", "ÄÖÜ-ユーザー", "3F2B8C1E-9A4D-4E7B-8C2F-1D5E6A7B8C9D" })
+    void binaryRoundTripKeepsNonCanonicalUserIdsAsStrings(String userId) {
+        LocationMessage decoded = LocationMessageCodec.decode(LocationMessageCodec.encodeBinary(message(userId, -33.8688, 151.2093)));
+
+        assertThat(decoded.getUserId()).isEqualTo(userId);
+        assertThat(decoded.getLatitude()).isEqualTo(-33.8688);
+        assertThat(decoded.getLongitude()).isEqualTo(151.2093);
+    }
+
+    @Test
+    void binaryRecordIsAFractionOfTheJsonOne() throws Exception {
+        LocationMessage message = message(USER_ID, 18.5204303, 73.8567437);
+        message.setUserEpochMillis(1_710_061_641_123L);
+
+        // What the json format puts on the topic: Boot's KafkaTemplate serializes with Jackson
+        byte[] json = new ObjectMapper().writeValueAsBytes(message);
+        byte[] binary = LocationMessageCodec.encodeBinary(message);
+
+        assertThat(json).hasSize(155);
+        assertThat(binary).hasSize(34);
+        // Non-UUID ids cost their UTF-8 length plus a 2-byte prefix instead of 16 bytes
+        assertThat(LocationMessageCodec.encodeBinary(message("u1", 18.5204303, 73.8567437))).hasSize(22);
+    }
+
+    @Test
+    void binaryEncodingFallsBackToUserDateTime() {
+        LocationMessage decoded = LocationMessageCodec.decode(LocationMessageCodec.encodeBinary(message("u1", 0, 0)));
+
+        assertThat(decoded.getUserEpochMillis())
+                .isEqualTo(ZonedDateTime.parse(USER_DATE_TIME).toInstant().toEpochMilli());
+        assertThat(decoded.getUserDateTime()).isNull();
+    }
+
+    @Test
+    void binaryCoordinatesKeepSevenDecimals() {
+        LocationMessage decoded = LocationMessageCodec.decode(
+                LocationMessageCodec.encodeBinary(message("u1", 89.99999994, -179.99999996)));
+
+        assertThat(decoded.getLatitude()).isEqualTo(89.9999999);
+        assertThat(decoded.getLongitude()).isEqualTo(-180.0);
+    }
+
+    @Test
+    void rejectsTruncatedBinary() {
+        byte[] payload = LocationMessageCodec.encodeBinary(message(USER_ID, 18.5, 73.8));
+
+        for (int length = 1; length < payload.length; length++) {
+            byte[] truncated = Arrays.copyOf(payload, length);
+            assertThatThrownBy(() -> LocationMessageCodec.decode(truncated))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void rejectsUnknownBinaryUserIdKindAndVersion() {
+        byte[] payload = LocationMessageCodec.encodeBinary(message(USER_ID, 18.5, 73.8));
+        payload[1] = 7;
+        assertThatThrownBy(() -> LocationMessageCodec.decode(payload))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("user id kind");
+
+        byte[] otherVersion = ByteBuffer.allocate(18).put((byte) 2).array();
+        assertThatThrownBy(() -> LocationMessageCodec.decodeBinary(otherVersion))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("version");
+    }
+
+    @Test
+    void binaryEncodingRejectsMissingFields() {
+        LocationMessage message = message("u1", 1, 2);
+        message.setUserDateTime(null);
+
+        assertThatThrownBy(() -> LocationMessageCodec.encodeBinary(message))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static LocationMessage message(String userId, double latitude, double longitude) {
+        LocationMessage message = new LocationMessage();
+        message.setUserId(userId);
+        message.setLatitude(latitude);
+        message.setLongitude(longitude);
+        message.setUserDateTime(USER_DATE_TIME);
+        return message;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dto.LocationMessage;
+import com.github.davidmoten.geo.GeoHash;
+import com.github.davidmoten.geo.LatLong;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LocationUpdateThrottleTest {
+
+    private static final long BUCKET_MILLIS = 5 * 60 * 1000L;
+    private static final long BUCKET_START = 1_710_061_500_000L; // 14:35 IST, a bucket boundary
+    // About 11 m of latitude
+    private static final double STEP = 0.0001;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LocationUpdateThrottle throttle = new LocationUpdateThrottle(true, 50, 1000, meterRegistry);
+
+    // Middle of a geohash-5 cell, so small moves stay inside it
+    private final LatLong centre = GeoHash.decodeHash(GeoHash.encodeHash(18.5204, 73.8567, 5));
+
+    @Test
+    void forwardsTheFirstUpdate() {
+        assertThat(throttle.shouldForward(at("alice", 0), BUCKET_START)).isTrue();
+    }
+
+    @Test
+    void suppressesSmallMovesInTheSameBucketAndCell() {
+        assertThat(throttle.shouldForward(at("alice", 0), BUCKET_START)).isTrue();
+
+        assertThat(throttle.shouldForward(at("alice", 0), BUCKET_START + 1_000)).isFalse();
+        assertThat(throttle.shouldForward(at("alice", 2 * STEP), BUCKET_START + 2_000)).isFalse();
+        assertThat(counter("location.throttle.forwarded")).isEqualTo(1);
+        assertThat(counter("location.throttle.suppressed")).isEqualTo(2);
+    }
+
+    @Test
+    void comparesAgainstTheLastForwardedPointNotTheLastSuppressedOne() {
+        assertThat(throttle.shouldForward(at("alice", 0), BUCKET_START)).isTrue();
+
+        // Each step is ~11 m from the previous one, but the fifth is ~55 m from the forwarded point
+        for (int i = 1; i <= 4; i++) {
+            assertThat(throttle.shouldForward(at("alice", i * STEP), BUCKET_START + i)).isFalse();
+        }
+        assertThat(throttle.shouldForward(at("alice", 5 * STEP), BUCKET_START + 5)).isTrue();
+        // ... which becomes the new reference
+        assertThat(throttle.shouldForward(at("alice", 5.5 * STEP), BUCKET_START + 6)).isFalse();
+    }
+
+    @Test
+    void forwardsOnceTheBucketChanges() {
+        assertThat(throttle.shouldForward(at("alice", 0), BUCKET_START + BUCKET_MILLIS - 1)).isTrue();
+
+        assertThat(throttle.shouldForward(at("alice", 0), BUCKET_START + BUCKET_MILLIS)).isTrue();
+        assertThat(throttle.shouldForward(at("alice", 0), BUCKET_START + BUCKET_MILLIS + 1)).isFalse();
+    }
+
+    @Test
+    void forwardsWhenASmallMoveCrossesIntoAnotherCell() {
+        // A few metres either side of the cell's southern edge
+        double edge = centre.getLat() - heightOfCell() / 2;
+        LocationMessage inside = message("alice", edge + 0.00002, centre.getLon());
+        LocationMessage outside = message("alice", edge - 0.00002, centre.getLon());
+        assertThat(GeoHash.encodeHash(inside.getLatitude(), inside.getLongitude(), 5))
+                .isNotEqualTo(GeoHash.encodeHash(outside.getLatitude(), outside.getLongitude(), 5));
+
+        assertThat(throttle.shouldForward(inside, BUCKET_START)).isTrue();
+        assertThat(throttle.shouldForward(outside, BUCKET_START + 1)).isTrue();
+    }
+
+    @Test
+    void tracksUsersIndependently() {
+        assertThat(throttle.shouldForward(at("alice", 0), BUCKET_START)).isTrue();
+        assertThat(throttle.shouldForward(at("bob", 0), BUCKET_START)).isTrue();
+        assertThat(throttle.shouldForward(at("alice", 0), BUCKET_START + 1)).isFalse();
+        assertThat(throttle.shouldForward(at("bob", 0), BUCKET_START + 1)).isFalse();
+    }
+
+    @Test
+    void forwardsEverythingWhenDisabledOrWithoutCoordinates() {
+        LocationUpdateThrottle disabled = new LocationUpdateThrottle(false, 50, 1000, new SimpleMeterRegistry());
+        assertThat(disabled.shouldForward(at("alice", 0), BUCKET_START)).isTrue();
+        assertThat(disabled.shouldForward(at("alice", 0), BUCKET_START + 1)).isTrue();
+
+        LocationMessage noCoordinates = new LocationMessage();
+        noCoordinates.setUserId("alice");
+        assertThat(throttle.shouldForward(noCoordinates, BUCKET_START)).isTrue();
+        assertThat(throttle.shouldForward(noCoordinates, BUCKET_START + 1)).isTrue();
+    }
+
+    private LocationMessage at(String userId, double northOffset) {
+        return message(userId, centre.getLat() + northOffset, centre.getLon());
+    }
+
+    private static LocationMessage message(String userId, double latitude, double longitude) {
+        LocationMessage message = new LocationMessage();
+        message.setUserId(userId);
+        message.setLatitude(latitude);
+        message.setLongitude(longitude);
+        return message;
+    }
+
+    // Geohash-5 cells span 12 latitude bits
+    private static double heightOfCell() {
+        return 180.0 / (1 << 12);
+    }
+
+    private double counter(String name) {
+        return meterRegistry.counter(name).count();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+class NearbyUserIndexTest {
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ZSetOperations<String, String> zSetOps = mock(ZSetOperations.class);
+
+    private final NearbyUserIndex index = new NearbyUserIndex(redisTemplate);
+
+    @BeforeEach
+    void stubOperations() {
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOps);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sweepTrimsExpiredEntriesBeforeAddingNewOnes() {
+        RedisOperations<String, String> ops = mock(RedisOperations.class);
+        when(ops.opsForZSet()).thenReturn(zSetOps);
+        long now = Instant.now().getEpochSecond();
+
+        index.recordSweep(ops, "alice", Map.of("bob", now + 600, "carol", now + 900));
+
+        InOrder order = inOrder(zSetOps, ops);
+        ArgumentCaptor<Double> trimmedUpTo = ArgumentCaptor.forClass(Double.class);
+        order.verify(zSetOps).removeRangeByScore(eq("nearby_index:alice"), eq(Double.NEGATIVE_INFINITY), trimmedUpTo.capture());
+        verify(zSetOps).addIfAbsent("nearby_index:alice", "bob", now + 600);
+        verify(zSetOps).addIfAbsent("nearby_index:alice", "carol", now + 900);
+        order.verify(ops).expire("nearby_index:alice", Duration.ofHours(26));
+        assertThat(trimmedUpTo.getValue()).isBetween((double) now, (double) now + 5);
+    }
+
+    @Test
+    void likesOverwriteTheExpiryAndMatchesRemoveTheEntry() {
+        index.put("alice", "bob", 1_710_065_000L);
+        index.remove("bob", "alice");
+
+        verify(zSetOps).add("nearby_index:alice", "bob", 1_710_065_000L);
+        verify(redisTemplate).expire("nearby_index:alice", Duration.ofHours(26));
+        verify(zSetOps).remove("nearby_index:bob", "alice");
+    }
+
+    @Test
+    void readsOnlyUnexpiredEntries() {
+        long now = Instant.now().getEpochSecond();
+        ArgumentCaptor<Double> from = ArgumentCaptor.forClass(Double.class);
+        when(zSetOps.rangeByScore(eq("nearby_index:alice"), from.capture(), eq(Double.POSITIVE_INFINITY)))
+                .thenReturn(Set.of("bob", "carol"));
+
+        assertThat(index.nearbyUserIds("alice")).containsExactlyInAnyOrder("bob", "carol");
+        assertThat(from.getValue()).isBetween((double) now, (double) now + 5);
+
+        when(zSetOps.rangeByScore(eq("nearby_index:dave"), anyDouble(), anyDouble())).thenReturn(null);
+        assertThat(index.nearbyUserIds("dave")).isEmpty();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.demo.service;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+/**
+ * A burst of concurrent requests that each block on one remote call (a sleep standing
+ * in for a Redis or DynamoDB round trip), on Tomcat's default pool of 200 platform
+ * threads against a virtual thread per request, as spring.threads.virtual.enabled does.
+ * The time per burst is also roughly the p99 latency: on the platform pool, requests
+ * past the 200th queue for a thread.
+ *
+ * The virtual case needs a Java 21 runtime (mvn -Pjava21 ...); on Java 17 it fails in setup.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="VirtualThreadBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VirtualThreadBenchmark {
+
+    // server.tomcat.threads.max default
+    private static final int PLATFORM_THREADS = 200;
+
+    @Param({ "platform", "virtual" })
+    public String threads;
+
+    @Param({ "2000" })
+    public int requests;
+
+    @Param({ "5" })
+    public int remoteCallMillis;
+
+    private ExecutorService platformPool;
+    private Executor executor;
+
+    @Setup
+    public void setUp() {
+        if ("virtual".equals(threads)) {
+            executor = new VirtualThreadTaskExecutor("request-");
+        } else {
+            platformPool = Executors.newFixedThreadPool(PLATFORM_THREADS);
+            executor = platformPool;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (platformPool != null) {
+            platformPool.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public void burst() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(requests);
+        for (int i = 0; i < requests; i++) {
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(remoteCallMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+    }
+}